@@ -0,0 +1,431 @@
+package Teacher;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.apache.commons.cli.*;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.api.SolverContext;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end benchmark of the learning loop over a corpus of SMT-LIB formulas and a matrix of settings
+ * Each run is a separate JVM, so peak heap and RSS are measured per run and timeouts can abort a run
+ * The results are written as CSV report and compared against a stored baseline report
+ */
+public class BenchmarkRunner {
+    private static final String RESULT_PREFIX = "BENCHMARK_RESULT";
+    private static final String STUB_ARGS_FILE = "stub_learner.args";
+    private static final AtomicLong peakLiveHeap = new AtomicLong(0);
+    private static final List<String> METRICS = List.of(
+            "wall_ms", "iterations", "data_size", "peak_heap_kb", "peak_rss_kb", "solver_ms", "learner_ms");
+    private static final List<String> SETTINGS = List.of("formula", "smt", "learner", "si", "sd", "run_both");
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--child")) {
+            //single run, the remaining arguments are Wrapper arguments
+            runChild(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        Options options = defineCommandLineOptions();
+        HelpFormatter helper = new HelpFormatter();
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            int regressions = runBenchmark(cmd);
+            System.exit(regressions > 0 ? 1 : 0);
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            helper.printHelp("Usage:", options);
+            System.exit(1);
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Runs every formula of the corpus with every combination of settings and compares against the baseline
+     *
+     * @return the number of regressions against the baseline
+     */
+    private static int runBenchmark(CommandLine cmd) throws ParseException, IOException, InterruptedException {
+        if (!cmd.hasOption("c")) {
+            throw new ParseException("Corpus directory not specified");
+        }
+        List<Path> corpus;
+        try (Stream<Path> files = Files.list(Path.of(cmd.getOptionValue("c")))) {
+            corpus = files.filter(f -> f.toString().endsWith(".smt2") || f.toString().endsWith(".smt"))
+                    .sorted()
+                    .toList();
+        }
+        Path outputPath = Path.of(cmd.getOptionValue("o", "../benchmark"));
+        Files.createDirectories(outputPath);
+        long timeout = Long.parseLong(cmd.getOptionValue("timeout", "600"));
+        String learnerEnv = cmd.getOptionValue("lenv");
+        String learnerExec = cmd.getOptionValue("lexe");
+        if (learnerEnv == null || learnerExec == null) {
+            //the stub learner is started through an argument file for the java launcher
+            Path argFile = outputPath.resolve(STUB_ARGS_FILE);
+            Files.writeString(argFile, "-cp \"" + System.getProperty("java.class.path").replace("\\", "\\\\")
+                    + "\" Teacher.StubLearner\n");
+            learnerEnv = javaExecutable();
+            learnerExec = "@" + argFile.toAbsolutePath();
+        }
+        List<Map<String, String>> results = new ArrayList<>();
+        int run = 0;
+        for (Path formula : corpus) {
+            for (String smt : cmd.getOptionValue("smt", "smtinterpol").split(",")) {
+                for (String learner : cmd.getOptionValue("l", "haltermann").split(",")) {
+                    for (String si : cmd.getOptionValue("si", "2").split(",")) {
+                        for (String sd : cmd.getOptionValue("sd", "1").split(",")) {
+                            for (String runBoth : cmd.getOptionValue("rb", "false").split(",")) {
+                                Map<String, String> result = new LinkedHashMap<>();
+                                result.put("formula", formula.getFileName().toString());
+                                result.put("smt", smt.trim());
+                                result.put("learner", learner.trim());
+                                result.put("si", si.trim());
+                                result.put("sd", sd.trim());
+                                result.put("run_both", String.valueOf(Boolean.parseBoolean(runBoth.trim())));
+                                Path runPath = outputPath.resolve("run_" + ++run);
+                                Files.createDirectories(runPath);
+                                System.out.println("run " + run + ": " + result);
+                                result.putAll(runSingle(formula, result, runPath, learnerEnv, learnerExec, timeout));
+                                System.out.println("result " + run + ": " + result);
+                                results.add(result);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        Path reportPath = Path.of(cmd.getOptionValue("r", outputPath.resolve("report.csv").toString()));
+        writeReport(reportPath, results);
+        System.out.println("report written to " + reportPath);
+        if (!cmd.hasOption("b")) {
+            return 0;
+        }
+        return compareBaseline(Path.of(cmd.getOptionValue("b")), results,
+                Double.parseDouble(cmd.getOptionValue("tt", "0.2")),
+                Double.parseDouble(cmd.getOptionValue("mt", "0.2")));
+    }
+
+    /**
+     * Runs the learning loop for one formula and one combination of settings in a new JVM
+     *
+     * @return the status and the measured metrics of the run
+     */
+    private static Map<String, String> runSingle(Path formula,
+                                                 Map<String, String> settings,
+                                                 Path runPath,
+                                                 String learnerEnv,
+                                                 String learnerExec,
+                                                 long timeout) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(javaExecutable(),
+                "-Djava.library.path=" + System.getProperty("java.library.path"),
+                "-cp", System.getProperty("java.class.path"),
+                BenchmarkRunner.class.getName(),
+                "--child",
+                "-fs", formula.toAbsolutePath().toString(),
+                "-smt", settings.get("smt"),
+                "-l", settings.get("learner"),
+                "-si", settings.get("si"),
+                "-sd", settings.get("sd"),
+                "-o", runPath.toAbsolutePath().toString(),
+                "-lenv", learnerEnv,
+                "-lexe", learnerExec));
+        if (Boolean.parseBoolean(settings.get("run_both"))) {
+            command.add("-rb");
+        }
+        Path log = runPath.resolve("log.txt");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        Map<String, String> result = new LinkedHashMap<>();
+        if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+            //the Learner processes of the child would keep running otherwise
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly().waitFor();
+            result.put("status", "timeout");
+            return result;
+        }
+        //the child prints its metrics as last line
+        Optional<String> metrics;
+        try (Stream<String> lines = Files.lines(log)) {
+            metrics = lines.filter(line -> line.startsWith(RESULT_PREFIX)).reduce((first, second) -> second);
+        }
+        if (process.exitValue() != 0 || metrics.isEmpty()) {
+            result.put("status", "error");
+            return result;
+        }
+        result.put("status", "ok");
+        for (String metric : metrics.get().substring(RESULT_PREFIX.length()).trim().split(" ")) {
+            String[] keyValue = metric.split("=", 2);
+            result.put(keyValue[0], keyValue[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the interpolation like the Wrapper and prints the metrics of the run
+     */
+    private static void runChild(String[] args) {
+        long start = System.nanoTime();
+        monitorHeap();
+        try {
+            CommandLine cmd = new DefaultParser().parse(Wrapper.defineCommandLineOptions(), args);
+            try (SolverContext context = SolverContextFactory.createSolverContext(Wrapper.parseSolver(cmd))) {
+                TeacherController controller = Wrapper.buildController(context,
+                        null,
+                        cmd,
+                        cmd.getOptionValue("lenv"),
+                        cmd.getOptionValue("lexe"),
+                        cmd.getOptionValue("o", "../output"));
+                if (cmd.getOptionValue("lexe").endsWith(STUB_ARGS_FILE)) {
+                    //only the stub learner needs the sorts of the variables
+                    StubLearner.writeVariableSorts(controller.getCommonVars(), cmd.getOptionValue("o", "../output"));
+                }
+                System.out.println("Learned Interpolant :" + controller.interpolate());
+                long wallTime = System.nanoTime() - start;
+                System.out.println(RESULT_PREFIX
+                        + " wall_ms=" + TimeUnit.NANOSECONDS.toMillis(wallTime)
+                        + " iterations=" + controller.getIterations()
+                        + " data_size=" + controller.getDataSize()
+                        + " peak_heap_kb=" + peakHeap() / 1024
+                        + " peak_rss_kb=" + peakRss()
+                        + " solver_ms=" + TimeUnit.NANOSECONDS.toMillis(controller.getSolverTime())
+                        + " learner_ms=" + TimeUnit.NANOSECONDS.toMillis(controller.getLearnerTime()));
+            }
+        } catch (ParseException | InvalidConfigurationException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Records the heap usage after each garbage collection
+     * The usage of all heap pools after one collection is taken at the same time, unlike the peaks of the single pools
+     */
+    private static void monitorHeap() {
+        Set<String> heapPools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(collector instanceof NotificationEmitter emitter)) continue;
+            emitter.addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                long used = 0;
+                for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                    if (heapPools.contains(pool.getKey())) {
+                        used += pool.getValue().getUsed();
+                    }
+                }
+                peakLiveHeap.accumulateAndGet(used, Math::max);
+            }, null, null);
+        }
+    }
+
+    /**
+     * @return the peak heap usage after a garbage collection in bytes, the live heap independent of the young generation
+     */
+    private static long peakHeap() {
+        //runs without any collection still report their live heap
+        System.gc();
+        return peakLiveHeap.accumulateAndGet(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+                Math::max);
+    }
+
+    /**
+     * @return the peak resident set size in kB, -1 if not available on this system
+     */
+    private static long peakRss() {
+        try (Stream<String> lines = Files.lines(Path.of("/proc/self/status"))) {
+            return lines.filter(line -> line.startsWith("VmHWM:"))
+                    .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                    .findFirst()
+                    .orElse(-1L);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static String javaExecutable() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static void writeReport(Path reportPath, List<Map<String, String>> results) throws IOException {
+        List<String> header = new ArrayList<>(SETTINGS);
+        header.add("status");
+        header.addAll(METRICS);
+        try (CSVPrinter csvPrinter = new CSVPrinter(new FileWriter(reportPath.toFile()), CSVFormat.DEFAULT)) {
+            csvPrinter.printRecord(header);
+            for (Map<String, String> result : results) {
+                csvPrinter.printRecord(header.stream().map(column -> result.getOrDefault(column, "")).toList());
+            }
+        }
+    }
+
+    /**
+     * Compares the results with a baseline report, runs are matched by their formula and settings
+     * Wall time and memory may exceed the baseline by the threshold, a run failing that succeeded before is a regression
+     *
+     * @param timeThreshold   the allowed relative increase of the wall time
+     * @param memoryThreshold the allowed relative increase of peak heap and RSS
+     * @return the number of regressions
+     */
+    private static int compareBaseline(Path baselinePath,
+                                       List<Map<String, String>> results,
+                                       double timeThreshold,
+                                       double memoryThreshold) throws IOException {
+        Map<List<String>, CSVRecord> baseline = new HashMap<>();
+        CSVFormat format = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build();
+        try (CSVParser parser = format.parse(new FileReader(baselinePath.toFile()))) {
+            for (CSVRecord record : parser) {
+                baseline.put(SETTINGS.stream().map(record::get).toList(), record);
+            }
+        }
+        int regressions = 0;
+        for (Map<String, String> result : results) {
+            CSVRecord base = baseline.get(SETTINGS.stream().map(result::get).toList());
+            if (base == null || !base.get("status").equals("ok")) {
+                continue;
+            }
+            if (!result.get("status").equals("ok")) {
+                System.out.println("REGRESSION " + result.get("formula") + ": status " + result.get("status"));
+                regressions++;
+                continue;
+            }
+            Map<String, Double> thresholds = Map.of(
+                    "wall_ms", timeThreshold, "peak_heap_kb", memoryThreshold, "peak_rss_kb", memoryThreshold);
+            for (String metric : List.of("wall_ms", "peak_heap_kb", "peak_rss_kb")) {
+                long baseValue = Long.parseLong(base.get(metric));
+                long value = Long.parseLong(result.get(metric));
+                if (baseValue >= 0 && value > baseValue * (1 + thresholds.get(metric))) {
+                    System.out.println("REGRESSION " + result.get("formula") + " " + result + ": "
+                            + metric + " " + baseValue + " -> " + value);
+                    regressions++;
+                }
+            }
+            if (!base.get("iterations").equals(result.get("iterations"))) {
+                //not a regression, the solvers may return different models
+                System.out.println("iterations changed " + result.get("formula") + ": "
+                        + base.get("iterations") + " -> " + result.get("iterations"));
+            }
+        }
+        System.out.println("Number of regressions: " + regressions);
+        return regressions;
+    }
+
+    private static Options defineCommandLineOptions() {
+        Options options = new Options();
+        options.addOption(Option.builder("c")
+                .longOpt("corpus")
+                .argName("corpus directory")
+                .hasArg()
+                .desc("Directory of SMT-LIBv2 files with single formulas, each is split like formula-single")
+                .build());
+        options.addOption(Option.builder("smt")
+                .longOpt("smt-solver")
+                .argName("used SMT solvers")
+                .hasArg()
+                .desc("Comma separated SMT solvers, same values as for the Wrapper")
+                .build());
+        options.addOption(Option.builder("l")
+                .longOpt("learner")
+                .argName("specific MIGml Learners")
+                .hasArg()
+                .desc("Comma separated Learners, same values as for the Wrapper")
+                .build());
+        options.addOption(Option.builder("si")
+                .longOpt("size-initial")
+                .argName("initial data set sizes")
+                .hasArg()
+                .desc("Comma separated sizes of the initial data set")
+                .build());
+        options.addOption(Option.builder("sd")
+                .longOpt("size-update")
+                .argName("update data sizes")
+                .hasArg()
+                .desc("Comma separated numbers of additional data points per failed check")
+                .build());
+        options.addOption(Option.builder("rb")
+                .longOpt("run-both")
+                .argName("run both checks")
+                .hasArg()
+                .desc("Comma separated values true or false for running both checks on each iteration")
+                .build());
+        options.addOption(Option.builder("lenv")
+                .longOpt("learner-environment")
+                .argName("python environment MIGml Learner")
+                .hasArg()
+                .desc("Path to the virtual python environment for the MIGml Learner, uses the stub Learner if not set")
+                .build());
+        options.addOption(Option.builder("lexe")
+                .longOpt("learner-executable")
+                .argName("executable MIGml Learner")
+                .hasArg()
+                .desc("Path to the executable of the MIGml Learner, uses the stub Learner if not set")
+                .build());
+        options.addOption(Option.builder("o")
+                .longOpt("output-path")
+                .argName("output directory")
+                .hasArg()
+                .desc("Path to the output directory for the runs and the report")
+                .build());
+        options.addOption(Option.builder("r")
+                .longOpt("report")
+                .argName("report file")
+                .hasArg()
+                .desc("Path of the CSV report, defaults to report.csv in the output directory")
+                .build());
+        options.addOption(Option.builder("b")
+                .longOpt("baseline")
+                .argName("baseline report")
+                .hasArg()
+                .desc("Path of a previous CSV report the results are compared against")
+                .build());
+        options.addOption(Option.builder("tt")
+                .longOpt("time-threshold")
+                .argName("time threshold")
+                .hasArg()
+                .desc("Allowed relative increase of the wall time against the baseline, default 0.2")
+                .build());
+        options.addOption(Option.builder("mt")
+                .longOpt("memory-threshold")
+                .argName("memory threshold")
+                .hasArg()
+                .desc("Allowed relative increase of peak heap and RSS against the baseline, default 0.2")
+                .build());
+        options.addOption(Option.builder("timeout")
+                .longOpt("timeout")
+                .argName("timeout")
+                .hasArg()
+                .desc("Timeout of a single run in seconds, default 600")
+                .build());
+        return options;
+    }
+}
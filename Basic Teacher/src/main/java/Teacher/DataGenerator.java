@@ -1,59 +1,54 @@
 package Teacher;
 
-import com.google.common.collect.ImmutableList;
-import de.uni_freiburg.informatik.ultimate.smtinterpol.theory.epr.util.Pair;
 import org.sosy_lab.java_smt.api.BooleanFormula;
 import org.sosy_lab.java_smt.api.Formula;
 import org.sosy_lab.java_smt.api.Model;
-import org.sosy_lab.java_smt.api.SolverContext;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 class DataGenerator {
     private static final AtomicInteger ID = new AtomicInteger(0);
     private static final AtomicInteger posNumber = new AtomicInteger(0);
     private static final AtomicInteger negNumber = new AtomicInteger(0);
-    private static boolean modelLabel = true;
 
     /**
      * generates the initial data set for the Learner
      *
-     * @param context    The JavaSMT context containing the formulas
      * @param a,b        The formulas to be interpolated
      * @param commonVars The common variables of the formulas
      * @param size       The size of the entire data set, half positive, half negative
+     * @param enumerator The enumerator generating the assignments of each formula
      * @return A Set of unique data points labeled positive and negative
      */
-    static Set<List<Number>> getInitialData(SolverContext context,
-                                            BooleanFormula a,
+    static Set<List<Number>> getInitialData(BooleanFormula a,
                                             BooleanFormula b,
                                             Map<String, Formula> commonVars,
-                                            int size) throws NoAssignmentFirstException, NoAssignmentSecondException {
-        //get models with assignments for the interpolation formulas
+                                            int size,
+                                            ShardedEnumerator enumerator) throws NoAssignmentFirstException, NoAssignmentSecondException {
+        //get assignments for the interpolation formulas
         System.out.println("generating initial data of size " + size);
         System.out.println("Number of positive points: 0");
         System.out.println("Number of negative points: 0");
-        modelLabel = true;
-        Pair<Boolean, List<Model>> modelAPair = ModelValidator.generateAssignments(context, a, size / 2 + size % 2);
-        modelLabel = false;
-        Pair<Boolean, List<Model>> modelBPair = ModelValidator.generateAssignments(context, b, size / 2);
+        //only assignments to the common variables are needed for the learning
+        PointSink pointsA = new PointSink(commonVars, true);
+        boolean solvableA = enumerator.generateAssignments(a, size / 2 + size % 2, pointsA);
+        PointSink pointsB = new PointSink(commonVars, false);
+        boolean solvableB = enumerator.generateAssignments(b, size / 2, pointsB);
         //check, if both formulas were satisfiable
-        if (!modelAPair.getFirst()) {
+        if (!solvableA) {
             //first formula unsatisfiable
             System.out.println("Formula A unsatisfiable");
             throw new NoAssignmentFirstException();
-        } else if (!modelBPair.getFirst()) {
+        } else if (!solvableB) {
             //second Formula unsatisfiable
             System.out.println("Formula B unsatisfiable");
             throw new NoAssignmentSecondException();
         } else {
-            //only assignments to the common variables are needed for the learning
-            Set<List<Number>> pointsA = generatePointsFromModels(modelAPair.getSecond(), commonVars, true);
-            Set<List<Number>> pointsB = generatePointsFromModels(modelBPair.getSecond(), commonVars, false);
             Set<List<Number>> data = new HashSet<>(size);
-            data.addAll(pointsA);
-            data.addAll(pointsB);
+            data.addAll(pointsA.getPoints());
+            data.addAll(pointsB.getPoints());
             return data;
 
         }
@@ -62,73 +57,87 @@ class DataGenerator {
     /**
      * expands the data set with the assignments found while checking the interpolant conditions
      *
-     * @param data       existing data set
-     * @param modelsA    list of models with assignments for the first formula
-     * @param modelsB    list of models with assignments for the second formula
-     * @param commonVars common variables of the formulas
+     * @param data    existing data set
+     * @param pointsA positive points generated from assignments for the first formula
+     * @param pointsB negative points generated from assignments for the second formula
      * @return a larger data set containing the new assignments
      */
-    static Set<List<Number>> updateData(Set<List<Number>> data, List<Model> modelsA, List<Model> modelsB, Map<String, Formula> commonVars) {
+    static Set<List<Number>> updateData(Set<List<Number>> data, Set<List<Number>> pointsA, Set<List<Number>> pointsB) {
         System.out.println("updating data");
         //preparing the new set and copying the existing data points
-        Set<List<Number>> newData = new HashSet<>(data.size() + modelsA.size() + modelsB.size());
+        Set<List<Number>> newData = new HashSet<>(data.size() + pointsA.size() + pointsB.size());
         newData.addAll(data);
-        //if assignments for the first formula exist, label them positive and add them
-        modelLabel = true;
-        Set<List<Number>> pointsA = generatePointsFromModels(modelsA, commonVars, true);
         newData.addAll(pointsA);
-        //if assignments for the second formula exist, label them negative and add them
-        modelLabel = false;
-        Set<List<Number>> pointsB = generatePointsFromModels(modelsB, commonVars, false);
         newData.addAll(pointsB);
         return newData;
     }
 
     /**
      * Reduces the dimension of the data points by reading only the assignments for the common variables from the models
-     *
-     * @param models     a list of model containing assignments for one of the formulas
-     * @param commonVars the common variables of the interpolation formulas
-     * @param label      positive or negative label for the generated points
-     * @return a set of ordered lists of assignments to the common variables
+     * Each model is projected as soon as it is generated, so it can be closed before the next check
+     * Common variables without assignment are irrelevant for the model and get the value 0
      */
-    static Set<List<Number>> generatePointsFromModels(List<Model> models, Map<String, Formula> commonVars, boolean label) {
-        Set<List<Number>> points = new HashSet<>(models.size());
-        for (Model model : models) {
-            ImmutableList<Model.ValueAssignment> assignments = model.asList();
-            List<Number> point = new ArrayList<>(commonVars.size() + 2);
-            //generate unique ID for point
-            point.add(ID.incrementAndGet());
-            //for each common variable get an assignment from the model
+    static class PointSink implements Consumer<List<Model.ValueAssignment>> {
+        private final Map<String, Integer> varIndex;
+        private final boolean label;
+        private final Set<List<Number>> points = new HashSet<>();
+
+        /**
+         * @param commonVars the common variables of the interpolation formulas
+         * @param label      positive or negative label for the generated points
+         */
+        PointSink(Map<String, Formula> commonVars, boolean label) {
+            //the position of each variable in the data points, the same order as in the data file
+            this.varIndex = new HashMap<>(commonVars.size());
             for (String var : commonVars.keySet()) {
-                for (Model.ValueAssignment assignment : assignments) {
-                    if (assignment.getName().equals(var)) {
-                        if (assignment.getValue() instanceof Boolean) {
-                            point.add((Boolean) assignment.getValue() ? 1 : 0);
-                        } else {
-                            point.add((Number) assignment.getValue());
-                        }
+                varIndex.put(var, varIndex.size());
+            }
+            this.label = label;
+        }
+
+        @Override
+        public void accept(List<Model.ValueAssignment> assignments) {
+            Number[] values = new Number[varIndex.size()];
+            //for each common variable get an assignment from the model
+            for (Model.ValueAssignment assignment : assignments) {
+                Integer index = varIndex.get(assignment.getName());
+                if (index != null) {
+                    if (assignment.getValue() instanceof Boolean) {
+                        values[index] = (Boolean) assignment.getValue() ? 1 : 0;
+                    } else {
+                        values[index] = (Number) assignment.getValue();
                     }
                 }
-
+            }
+            List<Number> point = new ArrayList<>(values.length + 2);
+            //generate unique ID for point
+            point.add(ID.incrementAndGet());
+            for (Number value : values) {
+                //variables without assignment are irrelevant for the model, any value satisfies it
+                point.add(value != null ? value : 0);
             }
             //add Label
             point.add(label ? 1 : 0);
             points.add(point);
-            model.close();
+            printLabeledModelCount();
         }
-        return points;
-    }
 
-    public static void printLabeledModelCount() {
-        if (modelLabel) {
-            //generated model is positive
-            System.out.println("Number of positive points: " + posNumber.incrementAndGet());
-        } else {
-            //generated model is negative
-            System.out.println("Number of negative points: " + negNumber.incrementAndGet());
+        /**
+         * @return the set of ordered lists of assignments to the common variables
+         */
+        Set<List<Number>> getPoints() {
+            return points;
         }
 
+        private void printLabeledModelCount() {
+            if (label) {
+                //generated model is positive
+                System.out.println("Number of positive points: " + posNumber.incrementAndGet());
+            } else {
+                //generated model is negative
+                System.out.println("Number of negative points: " + negNumber.incrementAndGet());
+            }
+        }
     }
 
     static class NoAssignmentFirstException extends Exception {
@@ -2,6 +2,7 @@ package Teacher;
 
 import de.uni_freiburg.informatik.ultimate.smtinterpol.theory.epr.util.Pair;
 import org.sosy_lab.java_smt.api.*;
+import org.sosy_lab.java_smt.api.visitors.DefaultBooleanFormulaVisitor;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -18,6 +19,8 @@ public class FormulaHandler {
             return context.getFormulaManager().parse(formulaString);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } catch (IllegalArgumentException e) {
+            throw new FormulaParseException(formulaPath, e);
         }
     }
 
@@ -74,6 +77,85 @@ public class FormulaHandler {
         return new Pair<>(a, b);
     }
 
+    /**
+     * Splits a formula into a sequence of partitions on its conjuncts, keeping the order of the conjuncts
+     *
+     * @param context      the JavaSMT context containing the formula
+     * @param bfmr         the boolean formula manager of the context
+     * @param unsatFormula the formula to be split
+     * @param partitions   the number of partitions, at most the number of conjuncts are used
+     * @return a list of the partitions, the conjunction of all partitions is the original formula
+     */
+    static List<BooleanFormula> splitFormulaSequence(SolverContext context,
+                                                     BooleanFormulaManager bfmr,
+                                                     BooleanFormula unsatFormula,
+                                                     int partitions)
+            throws InterruptedException, NoSplitException {
+        if (partitions < 2) {
+            throw new NoSplitException("abort: at least two partitions needed");
+        }
+        System.out.println("splitting formula into " + partitions + " partitions");
+        List<BooleanFormula> conjunctionFormulas = orderedConjuncts(bfmr, unsatFormula);
+        if (conjunctionFormulas.size() < 2) {
+            //no 'and' in formula to split
+            BooleanFormula nnfFormula = context.getFormulaManager().applyTactic(unsatFormula, Tactic.NNF);
+            conjunctionFormulas = orderedConjuncts(bfmr, nnfFormula);
+            if (conjunctionFormulas.size() < 2) {
+                //no 'and' in negative normal form
+                throw new NoSplitException("abort: no split possible");
+            }
+        }
+        int size = Math.min(partitions, conjunctionFormulas.size());
+        //distribute the conjuncts evenly, the first partitions get one more conjunct if not divisible
+        List<BooleanFormula> sequence = new ArrayList<>(size);
+        int start = 0;
+        for (int i = 0; i < size; i++) {
+            int end = start + conjunctionFormulas.size() / size + (i < conjunctionFormulas.size() % size ? 1 : 0);
+            sequence.add(bfmr.and(conjunctionFormulas.subList(start, end)));
+            System.out.println("Partition " + i + " size: " + (end - start));
+            start = end;
+        }
+        System.out.println("Overall formula size: " + conjunctionFormulas.size());
+        return sequence;
+    }
+
+    /**
+     * Collects the conjuncts of nested 'and' formulas from left to right
+     *
+     * @param bfmr    the boolean formula manager of the context
+     * @param formula the formula to be split
+     * @return the conjuncts in the order of the formula, the formula itself if it is no 'and'
+     */
+    private static List<BooleanFormula> orderedConjuncts(BooleanFormulaManager bfmr, BooleanFormula formula) {
+        DefaultBooleanFormulaVisitor<List<BooleanFormula>> andVisitor = new DefaultBooleanFormulaVisitor<>() {
+            @Override
+            protected List<BooleanFormula> visitDefault() {
+                return null;
+            }
+
+            @Override
+            public List<BooleanFormula> visitAnd(List<BooleanFormula> operands) {
+                return operands;
+            }
+        };
+        List<BooleanFormula> conjuncts = new ArrayList<>();
+        //explicit stack, path formulas can be deeply nested
+        Deque<BooleanFormula> stack = new ArrayDeque<>();
+        stack.push(formula);
+        while (!stack.isEmpty()) {
+            BooleanFormula current = stack.pop();
+            List<BooleanFormula> operands = bfmr.visit(current, andVisitor);
+            if (operands == null) {
+                conjuncts.add(current);
+            } else {
+                for (int i = operands.size() - 1; i >= 0; i--) {
+                    stack.push(operands.get(i));
+                }
+            }
+        }
+        return conjuncts;
+    }
+
     static Pair<BooleanFormula, BooleanFormula> getSimpleExample(SolverContext context) {
         BooleanFormulaManager bfmr = context.getFormulaManager().getBooleanFormulaManager();
         IntegerFormulaManager ifmr = context.getFormulaManager().getIntegerFormulaManager();
@@ -93,4 +175,13 @@ public class FormulaHandler {
             super(s);
         }
     }
+
+    /**
+     * The solver rejected a formula, either a syntax error or a conflict with the declarations already in the context
+     */
+    static class FormulaParseException extends RuntimeException {
+        public FormulaParseException(String s, Throwable cause) {
+            super("formula not parsable: " + s, cause);
+        }
+    }
 }
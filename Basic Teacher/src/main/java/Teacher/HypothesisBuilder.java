@@ -0,0 +1,460 @@
+package Teacher;
+
+import org.sosy_lab.java_smt.api.*;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Builds the hypothesis of the Learner directly through the formula managers of the context
+ * instead of running the SMT-LIB parser of the solver on every iteration.
+ * The hypothesis is read into a hash-consed term DAG, equal subterms are represented by the same node
+ * and the JavaSMT formula of each node is cached across iterations,
+ * as successive hypotheses share most of their atoms.
+ */
+class HypothesisBuilder {
+    //clear the caches if they grow beyond this amount of nodes
+    private static final int MAX_CACHED_NODES = 100_000;
+
+    private final FormulaManager fmgr;
+    private final BooleanFormulaManager bfmr;
+    private final IntegerFormulaManager ifmr;
+    private final Map<String, Formula> commonVars;
+    private final Map<Node, Node> nodes = new HashMap<>();
+    private final Map<Node, Formula> formulas = new HashMap<>();
+    private final Map<String, String> declaredSorts = new HashMap<>();
+    private int cacheHits = 0;
+
+    /**
+     * @param context    the JavaSMT context the hypothesis is built in
+     * @param commonVars the common variables of the interpolation formulas, used for undeclared variables
+     */
+    HypothesisBuilder(SolverContext context, Map<String, Formula> commonVars) {
+        this.fmgr = context.getFormulaManager();
+        this.bfmr = fmgr.getBooleanFormulaManager();
+        this.ifmr = fmgr.getIntegerFormulaManager();
+        this.commonVars = commonVars;
+    }
+
+    /**
+     * Converts the SMT-LIB output of the Learner to JavaSMT
+     * Falls back to the parser of the solver if the hypothesis uses unsupported constructs
+     *
+     * @param hypothesis the SMT-LIB script written by the Learner
+     * @return the hypothesis converted to JavaSMT
+     */
+    BooleanFormula build(String hypothesis) {
+        try {
+            if (nodes.size() > MAX_CACHED_NODES) {
+                nodes.clear();
+                formulas.clear();
+            }
+            cacheHits = 0;
+            List<Node> assertions = read(hypothesis);
+            List<BooleanFormula> conjuncts = new ArrayList<>(assertions.size());
+            for (Node assertion : assertions) {
+                conjuncts.add(toBoolean(toFormula(assertion)));
+            }
+            System.out.println("Hypothesis nodes cached: " + formulas.size() + ", reused: " + cacheHits);
+            return bfmr.and(conjuncts);
+        } catch (UnsupportedHypothesisException e) {
+            System.out.println("falling back to SMT-LIB parser: " + e.getMessage());
+            return fmgr.parse(hypothesis);
+        }
+    }
+
+    /**
+     * Reads the assertions of a SMT-LIB script into hash-consed nodes
+     * Declarations are remembered for the sort of the variables, other commands are ignored
+     *
+     * @param script the SMT-LIB script
+     * @return a list of the asserted terms
+     */
+    private List<Node> read(String script) throws UnsupportedHypothesisException {
+        Tokenizer tokenizer = new Tokenizer(script);
+        List<Node> assertions = new ArrayList<>();
+        String token;
+        while ((token = tokenizer.next()) != null) {
+            if (!token.equals("(")) {
+                throw new UnsupportedHypothesisException("expected command, found " + token);
+            }
+            String command = tokenizer.expectSymbol();
+            switch (command) {
+                case "assert" -> {
+                    assertions.add(readTerm(tokenizer, tokenizer.next(), Collections.emptyMap()));
+                    tokenizer.expect(")");
+                }
+                case "declare-fun" -> {
+                    String name = tokenizer.expectSymbol();
+                    tokenizer.expect("(");
+                    tokenizer.expect(")");
+                    declare(name, tokenizer.expectSymbol());
+                    tokenizer.expect(")");
+                }
+                case "declare-const" -> {
+                    String name = tokenizer.expectSymbol();
+                    declare(name, tokenizer.expectSymbol());
+                    tokenizer.expect(")");
+                }
+                case "set-logic", "set-info", "set-option", "check-sat", "get-model", "exit" -> tokenizer.skipRest();
+                default -> throw new UnsupportedHypothesisException("unsupported command " + command);
+            }
+        }
+        return assertions;
+    }
+
+    /**
+     * Remembers the sort of a declared variable
+     * The cached formulas are dropped if the sort of an already used variable changes,
+     * as the formulas of all terms containing the variable are stale, not only the variable itself
+     */
+    private void declare(String name, String sort) {
+        String previous = sortOf(name);
+        declaredSorts.put(name, sort);
+        if (previous != null && !previous.equals(sort)) {
+            System.out.println("sort of " + name + " changed from " + previous + " to " + sort);
+            formulas.clear();
+        }
+    }
+
+    /**
+     * @return the sort of the variable from the declaration or the common variables, null if unknown
+     */
+    private String sortOf(String name) {
+        String sort = declaredSorts.get(name);
+        if (sort == null && commonVars.containsKey(name)) {
+            sort = commonVars.get(name) instanceof BooleanFormula ? "Bool" : "Int";
+        }
+        return sort;
+    }
+
+    private Node readTerm(Tokenizer tokenizer, String token, Map<String, Node> bindings)
+            throws UnsupportedHypothesisException {
+        if (token == null || token.equals(")")) {
+            throw new UnsupportedHypothesisException("unexpected end of term");
+        }
+        if (!token.equals("(")) {
+            //constant or variable, let bindings shadow variables
+            Node bound = bindings.get(token);
+            return bound != null ? bound : intern(new Node(token, Node.NO_CHILDREN));
+        }
+        String symbol = tokenizer.expectSymbol();
+        if (symbol.equals("let")) {
+            //replace the bound names by their terms, the nodes are shared in the DAG
+            Map<String, Node> letBindings = new HashMap<>(bindings);
+            tokenizer.expect("(");
+            for (String next = tokenizer.next(); next != null && !next.equals(")"); next = tokenizer.next()) {
+                String name = tokenizer.expectSymbol();
+                letBindings.put(name, readTerm(tokenizer, tokenizer.next(), bindings));
+                tokenizer.expect(")");
+            }
+            Node body = readTerm(tokenizer, tokenizer.next(), letBindings);
+            tokenizer.expect(")");
+            return body;
+        }
+        List<Node> children = new ArrayList<>();
+        for (String next = tokenizer.next(); !")".equals(next); next = tokenizer.next()) {
+            children.add(readTerm(tokenizer, next, bindings));
+        }
+        return intern(new Node(symbol, children.toArray(Node.NO_CHILDREN)));
+    }
+
+    private Node intern(Node node) {
+        Node existing = nodes.putIfAbsent(node, node);
+        return existing != null ? existing : node;
+    }
+
+    /**
+     * Builds the JavaSMT formula of a node, reusing the formulas of already built nodes
+     *
+     * @param node the node to be converted
+     * @return the formula represented by the node
+     */
+    private Formula toFormula(Node node) throws UnsupportedHypothesisException {
+        Formula cached = formulas.get(node);
+        if (cached != null) {
+            cacheHits++;
+            return cached;
+        }
+        List<Formula> args = new ArrayList<>(node.children.length);
+        for (Node child : node.children) {
+            args.add(toFormula(child));
+        }
+        Formula formula = node.children.length == 0 ? makeLeaf(node.symbol) : makeApplication(node.symbol, args);
+        formulas.put(node, formula);
+        return formula;
+    }
+
+    private Formula makeLeaf(String symbol) throws UnsupportedHypothesisException {
+        if (symbol.equals("true")) {
+            return bfmr.makeTrue();
+        } else if (symbol.equals("false")) {
+            return bfmr.makeFalse();
+        } else if (Character.isDigit(symbol.charAt(0))) {
+            try {
+                return ifmr.makeNumber(new BigInteger(symbol));
+            } catch (NumberFormatException e) {
+                throw new UnsupportedHypothesisException("unsupported constant " + symbol);
+            }
+        }
+        //variable, the sort is taken from the declaration or the common variables
+        String sort = sortOf(symbol);
+        if ("Int".equals(sort)) {
+            return ifmr.makeVariable(symbol);
+        } else if ("Bool".equals(sort)) {
+            return bfmr.makeVariable(symbol);
+        }
+        throw new UnsupportedHypothesisException("unknown sort of variable " + symbol);
+    }
+
+    private Formula makeApplication(String symbol, List<Formula> args) throws UnsupportedHypothesisException {
+        int arity = switch (symbol) {
+            case "ite" -> 3;
+            case "=>", "xor", "=", "<=", "<", ">=", ">", "div", "mod" -> 2;
+            default -> 1;
+        };
+        if (args.size() < arity) {
+            throw new UnsupportedHypothesisException("too few arguments for " + symbol);
+        }
+        switch (symbol) {
+            case "not" -> {
+                return bfmr.not(toBoolean(args.get(0)));
+            }
+            case "and" -> {
+                return bfmr.and(toBooleans(args));
+            }
+            case "or" -> {
+                return bfmr.or(toBooleans(args));
+            }
+            case "=>" -> {
+                //right associative
+                BooleanFormula result = toBoolean(args.get(args.size() - 1));
+                for (int i = args.size() - 2; i >= 0; i--) {
+                    result = bfmr.implication(toBoolean(args.get(i)), result);
+                }
+                return result;
+            }
+            case "xor" -> {
+                BooleanFormula result = toBoolean(args.get(0));
+                for (int i = 1; i < args.size(); i++) {
+                    result = bfmr.xor(result, toBoolean(args.get(i)));
+                }
+                return result;
+            }
+            case "ite" -> {
+                return ifThenElse(toBoolean(args.get(0)), args.get(1), args.get(2));
+            }
+            case "=" -> {
+                List<BooleanFormula> equalities = new ArrayList<>(args.size() - 1);
+                for (int i = 1; i < args.size(); i++) {
+                    if (args.get(i) instanceof BooleanFormula) {
+                        equalities.add(bfmr.equivalence(toBoolean(args.get(i - 1)), toBoolean(args.get(i))));
+                    } else {
+                        equalities.add(ifmr.equal(toInteger(args.get(i - 1)), toInteger(args.get(i))));
+                    }
+                }
+                return bfmr.and(equalities);
+            }
+            case "<=", "<", ">=", ">" -> {
+                //chainable comparisons
+                List<BooleanFormula> comparisons = new ArrayList<>(args.size() - 1);
+                for (int i = 1; i < args.size(); i++) {
+                    IntegerFormula left = toInteger(args.get(i - 1));
+                    IntegerFormula right = toInteger(args.get(i));
+                    comparisons.add(switch (symbol) {
+                        case "<=" -> ifmr.lessOrEquals(left, right);
+                        case "<" -> ifmr.lessThan(left, right);
+                        case ">=" -> ifmr.greaterOrEquals(left, right);
+                        default -> ifmr.greaterThan(left, right);
+                    });
+                }
+                return bfmr.and(comparisons);
+            }
+            case "+" -> {
+                return ifmr.sum(toIntegers(args));
+            }
+            case "-" -> {
+                if (args.size() == 1) {
+                    return ifmr.negate(toInteger(args.get(0)));
+                }
+                IntegerFormula result = toInteger(args.get(0));
+                for (int i = 1; i < args.size(); i++) {
+                    result = ifmr.subtract(result, toInteger(args.get(i)));
+                }
+                return result;
+            }
+            case "*" -> {
+                IntegerFormula result = toInteger(args.get(0));
+                for (int i = 1; i < args.size(); i++) {
+                    result = ifmr.multiply(result, toInteger(args.get(i)));
+                }
+                return result;
+            }
+            case "div" -> {
+                return ifmr.divide(toInteger(args.get(0)), toInteger(args.get(1)));
+            }
+            case "mod" -> {
+                return ifmr.modulo(toInteger(args.get(0)), toInteger(args.get(1)));
+            }
+            default -> throw new UnsupportedHypothesisException("unsupported function " + symbol);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Formula> T ifThenElse(BooleanFormula condition, Formula then, Formula otherwise) {
+        return bfmr.ifThenElse(condition, (T) then, (T) otherwise);
+    }
+
+    private static BooleanFormula toBoolean(Formula formula) throws UnsupportedHypothesisException {
+        if (formula instanceof BooleanFormula booleanFormula) {
+            return booleanFormula;
+        }
+        throw new UnsupportedHypothesisException("expected boolean term, found " + formula);
+    }
+
+    private static IntegerFormula toInteger(Formula formula) throws UnsupportedHypothesisException {
+        if (formula instanceof IntegerFormula integerFormula) {
+            return integerFormula;
+        }
+        throw new UnsupportedHypothesisException("expected integer term, found " + formula);
+    }
+
+    private static List<BooleanFormula> toBooleans(List<Formula> formulas) throws UnsupportedHypothesisException {
+        List<BooleanFormula> result = new ArrayList<>(formulas.size());
+        for (Formula formula : formulas) {
+            result.add(toBoolean(formula));
+        }
+        return result;
+    }
+
+    private static List<IntegerFormula> toIntegers(List<Formula> formulas) throws UnsupportedHypothesisException {
+        List<IntegerFormula> result = new ArrayList<>(formulas.size());
+        for (Formula formula : formulas) {
+            result.add(toInteger(formula));
+        }
+        return result;
+    }
+
+    /**
+     * A term of the hypothesis, children are interned, so they are compared by identity
+     */
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private final String symbol;
+        private final Node[] children;
+        private final int hash;
+
+        private Node(String symbol, Node[] children) {
+            this.symbol = symbol;
+            this.children = children;
+            int h = symbol.hashCode();
+            for (Node child : children) {
+                h = 31 * h + System.identityHashCode(child);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Node other) || hash != other.hash || !symbol.equals(other.symbol)
+                    || children.length != other.children.length) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != other.children[i]) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Splits a SMT-LIB script into parentheses and symbols, comments are skipped
+     */
+    private static final class Tokenizer {
+        private final String input;
+        private int pos = 0;
+
+        private Tokenizer(String input) {
+            this.input = input;
+        }
+
+        private String next() {
+            //skip whitespace and comments
+            while (pos < input.length()) {
+                char c = input.charAt(pos);
+                if (c == ';') {
+                    while (pos < input.length() && input.charAt(pos) != '\n') pos++;
+                } else if (Character.isWhitespace(c)) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            if (pos >= input.length()) {
+                return null;
+            }
+            char c = input.charAt(pos);
+            if (c == '(' || c == ')') {
+                pos++;
+                return String.valueOf(c);
+            }
+            int start = pos;
+            if (c == '|') {
+                //quoted symbol, the quotes are not part of the name
+                int end = input.indexOf('|', pos + 1);
+                pos = end < 0 ? input.length() : end + 1;
+                return input.substring(start + 1, Math.max(start + 1, pos - 1));
+            }
+            if (c == '"') {
+                int end = input.indexOf('"', pos + 1);
+                pos = end < 0 ? input.length() : end + 1;
+                return input.substring(start, pos);
+            }
+            while (pos < input.length()) {
+                c = input.charAt(pos);
+                if (c == '(' || c == ')' || c == ';' || Character.isWhitespace(c)) break;
+                pos++;
+            }
+            return input.substring(start, pos);
+        }
+
+        private String expectSymbol() throws UnsupportedHypothesisException {
+            String token = next();
+            if (token == null || token.equals("(") || token.equals(")")) {
+                throw new UnsupportedHypothesisException("expected symbol, found " + token);
+            }
+            return token;
+        }
+
+        private void expect(String expected) throws UnsupportedHypothesisException {
+            String token = next();
+            if (!expected.equals(token)) {
+                throw new UnsupportedHypothesisException("expected " + expected + ", found " + token);
+            }
+        }
+
+        //skips the remaining tokens of the current command
+        private void skipRest() throws UnsupportedHypothesisException {
+            int depth = 1;
+            while (depth > 0) {
+                String token = next();
+                if (token == null) throw new UnsupportedHypothesisException("unexpected end of script");
+                if (token.equals("(")) depth++;
+                else if (token.equals(")")) depth--;
+            }
+        }
+    }
+
+    static class UnsupportedHypothesisException extends Exception {
+        public UnsupportedHypothesisException(String s) {
+            super(s);
+        }
+    }
+}
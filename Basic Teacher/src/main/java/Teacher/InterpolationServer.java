@@ -0,0 +1,321 @@
+package Teacher;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.ParseException;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.SolverContext;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived interpolation server keeping warm solver contexts between requests
+ * Each request is one line with the formula, learner, size, run-both, smt-solver and split-only arguments of the Wrapper,
+ * the response is either "OK n" followed by n lines of interpolants or "ERROR message"
+ * The Learner and the output directory are fixed by the server, so clients can not start arbitrary programs
+ */
+class InterpolationServer implements Closeable {
+    //options a request may set, everything else is fixed by the server
+    private static final Set<String> REQUEST_OPTIONS = Set.of("fs", "f1", "f2", "l", "si", "sd", "rb", "smt", "so");
+    //contexts keep all declarations and terms of their requests, so they are replaced after this many requests
+    private static final int MAX_CONTEXT_USES = 50;
+    private static final int SOCKET_FILE_TYPE = 0140000;
+    private static final int FILE_TYPE_MASK = 0170000;
+    private static final AtomicInteger requestNumber = new AtomicInteger(0);
+    private final ServerSocketChannel serverChannel;
+    private final Path socketPath;
+    private final int threads;
+    private final String learnerEnv;
+    private final String learnerExec;
+    private final String outputPath;
+    private final ThreadPoolExecutor solverExecutor;
+    private final ExecutorService connectionExecutor = Executors.newCachedThreadPool();
+    private final Map<SolverContextFactory.Solvers, BlockingQueue<PooledContext>> contextPool =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @param address     a port on the loopback interface or the path of a Unix domain socket
+     * @param threads     the maximum number of requests solved at the same time
+     * @param queueSize   the maximum number of waiting requests
+     * @param learnerEnv  the python environment of the Learner used for all requests
+     * @param learnerExec the executable of the Learner used for all requests
+     * @param outputPath  the directory for the learner communication, each request uses a subdirectory
+     */
+    InterpolationServer(String address,
+                        int threads,
+                        int queueSize,
+                        String learnerEnv,
+                        String learnerExec,
+                        String outputPath) throws IOException {
+        SocketAddress socketAddress;
+        if (address.matches("\\d+")) {
+            socketAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+            serverChannel = ServerSocketChannel.open();
+            socketPath = null;
+        } else {
+            socketPath = Path.of(address);
+            deleteStaleSocket(socketPath);
+            socketAddress = UnixDomainSocketAddress.of(socketPath);
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        serverChannel.bind(socketAddress);
+        this.threads = threads;
+        this.learnerEnv = learnerEnv;
+        this.learnerExec = learnerExec;
+        this.outputPath = outputPath;
+        this.solverExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize));
+        System.out.println("listening on " + socketAddress);
+    }
+
+    /**
+     * Deletes the socket file of an earlier server, any other existing file or a socket in use is left untouched
+     */
+    private static void deleteStaleSocket(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        boolean socket;
+        if (path.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+            int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            socket = (mode & FILE_TYPE_MASK) == SOCKET_FILE_TYPE;
+        } else {
+            //no file modes on Windows, socket files are neither regular files, directories nor links there
+            socket = !Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)
+                    && !Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)
+                    && !Files.isSymbolicLink(path);
+        }
+        if (!socket) {
+            throw new IOException("abort: " + path + " exists and is no socket");
+        }
+        //a socket accepting connections belongs to a running server
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+            throw new IOException("abort: a server is already listening on " + path);
+        } catch (ConnectException e) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Creates a context for each solver thread in advance
+     *
+     * @param solver the solver of the created contexts
+     */
+    void warmUp(SolverContextFactory.Solvers solver) throws InvalidConfigurationException {
+        //the common variables are always calculated in SMTInterpol
+        for (SolverContextFactory.Solvers warmSolver : new LinkedHashSet<>(
+                List.of(solver, SolverContextFactory.Solvers.SMTINTERPOL))) {
+            BlockingQueue<PooledContext> contexts = contextPool.computeIfAbsent(warmSolver,
+                    s -> new LinkedBlockingQueue<>());
+            for (int i = contexts.size(); i < threads; i++) {
+                contexts.add(new PooledContext(SolverContextFactory.createSolverContext(warmSolver)));
+            }
+        }
+        System.out.println("warmed up contexts for " + solver);
+    }
+
+    /**
+     * Accepts connections until the server channel is closed
+     */
+    void run() throws IOException {
+        while (serverChannel.isOpen()) {
+            SocketChannel connection = serverChannel.accept();
+            connectionExecutor.execute(() -> handleConnection(connection));
+        }
+    }
+
+    /**
+     * Reads the requests of one connection and writes the responses in the same order
+     */
+    private void handleConnection(SocketChannel connection) {
+        try (connection;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     Channels.newInputStream(connection), StandardCharsets.UTF_8));
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                     Channels.newOutputStream(connection), StandardCharsets.UTF_8), true)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] args = splitArguments(line);
+                List<String> response;
+                try {
+                    response = solverExecutor.submit(() -> handleRequest(args)).get();
+                } catch (RejectedExecutionException e) {
+                    response = List.of("ERROR server busy");
+                } catch (ExecutionException e) {
+                    response = List.of("ERROR " + singleLine(String.valueOf(e.getCause())));
+                }
+                response.forEach(writer::println);
+            }
+        } catch (IOException e) {
+            System.out.println("connection closed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks the arguments of one request and runs it with contexts from the pool
+     *
+     * @param args the command line arguments of the request
+     * @return the lines of the response
+     */
+    private List<String> handleRequest(String[] args) throws Exception {
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(Wrapper.defineCommandLineOptions(), args);
+        } catch (ParseException e) {
+            return List.of("ERROR " + singleLine(e.getMessage()));
+        }
+        for (Option option : cmd.getOptions()) {
+            if (!REQUEST_OPTIONS.contains(option.getOpt())) {
+                return List.of("ERROR option -" + option.getOpt() + " not allowed in server mode");
+            }
+        }
+        int id = requestNumber.incrementAndGet();
+        System.out.println("handling request " + id);
+        return runRequest(cmd, id, false);
+    }
+
+    /**
+     * Runs one request and returns its contexts to the pool
+     * A request whose formulas can not be parsed in reused contexts is run once more on new contexts,
+     * as declarations of earlier requests can conflict with the formulas of this request
+     * Such contexts are closed, all other failures are sent to the client right away
+     *
+     * @param cmd   the command line of the request
+     * @param id    the number of the request
+     * @param fresh use new contexts instead of the pool
+     * @return the lines of the response
+     */
+    private List<String> runRequest(CommandLine cmd, int id, boolean fresh) throws Exception {
+        SolverContextFactory.Solvers solver = Wrapper.parseSolver(cmd);
+        PooledContext context = borrowContext(solver, fresh);
+        PooledContext varContext = null;
+        boolean keepContexts = true;
+        try {
+            List<String> response = new ArrayList<>();
+            if (cmd.hasOption("so")) {
+                Wrapper.generateSplit(context.context, cmd, outputPath);
+                response.add("OK 0");
+            } else {
+                //every request gets its own directory for the learner communication
+                String requestPath = outputPath + "/request_" + id;
+                Files.createDirectories(Path.of(requestPath));
+                varContext = borrowContext(SolverContextFactory.Solvers.SMTINTERPOL, fresh);
+                BooleanFormula interpolant = Wrapper.buildController(context.context,
+                        varContext.context,
+                        cmd,
+                        learnerEnv,
+                        learnerExec,
+                        requestPath).interpolate();
+                response.add("OK 1");
+                response.add(singleLine(interpolant.toString()));
+            }
+            return response;
+        } catch (FormulaHandler.FormulaParseException e) {
+            //the declarations in the contexts conflict with the formulas of this request
+            keepContexts = false;
+            boolean reused = context.uses > 0 || (varContext != null && varContext.uses > 0);
+            context.context.close();
+            if (varContext != null) varContext.context.close();
+            if (reused) {
+                System.out.println("request " + id + " not parsable in reused contexts, retrying with new contexts");
+                return runRequest(cmd, id, true);
+            }
+            throw e;
+        } finally {
+            if (keepContexts) {
+                returnContext(solver, context);
+                if (varContext != null) returnContext(SolverContextFactory.Solvers.SMTINTERPOL, varContext);
+            }
+        }
+    }
+
+    private PooledContext borrowContext(SolverContextFactory.Solvers solver, boolean fresh)
+            throws InvalidConfigurationException {
+        PooledContext context = fresh ? null
+                : contextPool.computeIfAbsent(solver, s -> new LinkedBlockingQueue<>()).poll();
+        return context != null ? context : new PooledContext(SolverContextFactory.createSolverContext(solver));
+    }
+
+    private void returnContext(SolverContextFactory.Solvers solver, PooledContext context) {
+        if (++context.uses >= MAX_CONTEXT_USES) {
+            //retire the context, a new one is created on demand
+            context.context.close();
+        } else {
+            contextPool.computeIfAbsent(solver, s -> new LinkedBlockingQueue<>()).add(context);
+        }
+    }
+
+    /**
+     * Splits a request into arguments on whitespace, double quotes group arguments containing whitespace
+     */
+    static String[] splitArguments(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inArgument = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+                inArgument = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inArgument) args.add(current.toString());
+                current.setLength(0);
+                inArgument = false;
+            } else {
+                current.append(c);
+                inArgument = true;
+            }
+        }
+        if (inArgument) args.add(current.toString());
+        return args.toArray(new String[0]);
+    }
+
+    private static String singleLine(String text) {
+        return text.replaceAll("\\s*\\R\\s*", " ");
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        solverExecutor.shutdownNow();
+        connectionExecutor.shutdownNow();
+        for (BlockingQueue<PooledContext> contexts : contextPool.values()) {
+            contexts.forEach(pooled -> pooled.context.close());
+        }
+        if (socketPath != null) Files.deleteIfExists(socketPath);
+    }
+
+    /**
+     * A context of the pool with the number of requests it was used for
+     */
+    private static final class PooledContext {
+        private final SolverContext context;
+        private int uses = 0;
+
+        private PooledContext(SolverContext context) {
+            this.context = context;
+        }
+    }
+}
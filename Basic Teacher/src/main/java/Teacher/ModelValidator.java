@@ -3,9 +3,9 @@ package Teacher;
 import de.uni_freiburg.informatik.ultimate.smtinterpol.theory.epr.util.Pair;
 import org.sosy_lab.java_smt.api.*;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 class ModelValidator {
 
@@ -14,70 +14,100 @@ class ModelValidator {
     /**
      * Checks the learned hypothesis for the conditions of an interpolant, specifically if their negation is satisfiable
      *
-     * @param context the JavaSMT context containing the formulas
-     * @param a,b     the formulas to be interpolated
-     * @param h       the hypothesis from the Learner
-     * @return a boolean denoting if h is an interpolant and two models that satisfy the negation of the conditions,
-     * if they exist
+     * @param context    the JavaSMT context containing the formulas
+     * @param a,b        the formulas to be interpolated
+     * @param h          the hypothesis from the Learner
+     * @param commonVars the common variables of the formulas
+     * @param enumerator the enumerator generating the assignments of each check
+     * @return a boolean denoting if h is an interpolant and the positive and negative points from the assignments
+     * that satisfy the negation of the conditions, if they exist
      */
-    static Pair<Boolean, Pair<List<Model>, List<Model>>> validateModel(SolverContext context,
-                                                                       BooleanFormula a,
-                                                                       BooleanFormula b,
-                                                                       BooleanFormula h,
-                                                                       int size,
-                                                                       boolean runBoth) {
+    static Pair<Boolean, Pair<Set<List<Number>>, Set<List<Number>>>> validateModel(SolverContext context,
+                                                                                   BooleanFormula a,
+                                                                                   BooleanFormula b,
+                                                                                   BooleanFormula h,
+                                                                                   int size,
+                                                                                   boolean runBoth,
+                                                                                   Map<String, Formula> commonVars,
+                                                                                   ShardedEnumerator enumerator) {
         System.out.println("validate hypothesis");
         BooleanFormulaManager bfmr = context.getFormulaManager().getBooleanFormulaManager();
-        //construct the formula a&!h, the negation of condition a -> h
-        BooleanFormula ah = bfmr.and(a, bfmr.not(h));
-        //construct the formula b&h, the negation of condition !(b&h)
-        BooleanFormula bh = bfmr.and(b, h);
-        //test condition a -> h
+        //test condition a -> h with the formula a&!h, assignments are positive points
         System.out.println("running first check");
-        Pair<Boolean, List<Model>> firstCheck = generateAssignments(context, ah, size);
-        if (!runBoth && firstCheck.getFirst()) {
-            return new Pair<>(false, new Pair<>(firstCheck.getSecond(), new ArrayList<>(0)));
+        DataGenerator.PointSink pointsA = new DataGenerator.PointSink(commonVars, true);
+        boolean firstCheck = enumerator.generateAssignments(a, bfmr.not(h), size, pointsA);
+        if (!runBoth && firstCheck) {
+            return new Pair<>(false, new Pair<>(pointsA.getPoints(), new HashSet<>(0)));
         }
+        //test condition !(b&h) with the formula b&h, assignments are negative points
         System.out.println("running second check");
-        Pair<Boolean, List<Model>> secondCheck = generateAssignments(context, bh, size);
-        return new Pair<>(!firstCheck.getFirst() && !secondCheck.getFirst(),
-                new Pair<>(firstCheck.getSecond(), secondCheck.getSecond()));
+        DataGenerator.PointSink pointsB = new DataGenerator.PointSink(commonVars, false);
+        boolean secondCheck = enumerator.generateAssignments(b, h, size, pointsB);
+        return new Pair<>(!firstCheck && !secondCheck,
+                new Pair<>(pointsA.getPoints(), pointsB.getPoints()));
     }
 
     /**
-     * checks if the given formula is satisfiable and returns multiple assignments
+     * checks if the given formula is satisfiable and passes multiple assignments to the sink
+     * each model is closed after it was passed to the sink, before the next check
      *
      * @param context the JavaSMT context containing the variables
      * @param formula the formula to be satisfied
      * @param count   amount of assignments to be generated
-     * @return a boolean denoting if the formula is satisfiable and a list of satisfying models, if they exists
+     * @param sink    the consumer of the assignments of each satisfying model
+     * @return a boolean denoting if the formula is satisfiable
      */
-    static Pair<Boolean, List<Model>> generateAssignments(SolverContext context, BooleanFormula formula, int count) {
+    static boolean generateAssignments(SolverContext context,
+                                       BooleanFormula formula,
+                                       int count,
+                                       Consumer<List<Model.ValueAssignment>> sink) {
         try (ProverEnvironment prover = context.newProverEnvironment(SolverContext.ProverOptions.GENERATE_MODELS)) {
             BooleanFormulaManager bfmr = context.getFormulaManager().getBooleanFormulaManager();
-            boolean solvable = false;
-            List<Model> models = new ArrayList<>(count);
             prover.addConstraint(formula);
-            for (int i = 0; !prover.isUnsat() && i < count; i++) {
-                //the formula can be satisfied
-                solvable = true;
-                //get one assignment
-                Model model = prover.getModel();
-                models.add(model);
+            return enumerateModels(prover, bfmr, new AtomicInteger(count), sink);
+        } catch (InterruptedException | SolverException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * passes models of the constraints on the prover to the sink, blocking each model after it was passed
+     * the budget may be shared between provers, one assignment is claimed only after a successful check
+     *
+     * @param prover the prover containing the constraints, the blocking clauses are added to it
+     * @param bfmr   the boolean formula manager of the context of the prover
+     * @param budget the amount of assignments still to be generated
+     * @param sink   the consumer of the assignments of each satisfying model
+     * @return a boolean denoting if the constraints were satisfiable in any check
+     */
+    static boolean enumerateModels(ProverEnvironment prover,
+                                   BooleanFormulaManager bfmr,
+                                   AtomicInteger budget,
+                                   Consumer<List<Model.ValueAssignment>> sink) throws InterruptedException, SolverException {
+        boolean solvable = false;
+        while (budget.get() > 0 && !prover.isUnsat()) {
+            //the formula can be satisfied
+            solvable = true;
+            //claim one assignment, only decrement while the budget is positive
+            if (budget.getAndUpdate(left -> left > 0 ? left - 1 : left) <= 0) {
+                break;
+            }
+            //get one assignment
+            final List<BooleanFormula> modelAssignmentsAsFormulas = new ArrayList<>();
+            try (Model model = prover.getModel()) {
                 //print current number of generated models
                 System.out.println("Number of generated models: " + modelNumber.incrementAndGet());
-                DataGenerator.printLabeledModelCount();
+                //the assignments are read once, for the blocking clause and the sink
+                List<Model.ValueAssignment> assignments = model.asList();
                 //generate formula representing assignment
-                final List<BooleanFormula> modelAssignmentsAsFormulas = new ArrayList<>();
-                for (Model.ValueAssignment va : model) {
+                for (Model.ValueAssignment va : assignments) {
                     modelAssignmentsAsFormulas.add(va.getAssignmentAsFormula());
                 }
-                //remove assignment from possible solutions
-                prover.addConstraint(bfmr.not(bfmr.and(modelAssignmentsAsFormulas)));
+                sink.accept(assignments);
             }
-            return new Pair<>(solvable, models);
-        } catch (InterruptedException | SolverException e) {
-            throw new RuntimeException(e);
+            //remove assignment from possible solutions
+            prover.addConstraint(bfmr.not(bfmr.and(modelAssignmentsAsFormulas)));
         }
+        return solvable;
     }
 }
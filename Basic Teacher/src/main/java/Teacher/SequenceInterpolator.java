@@ -0,0 +1,190 @@
+package Teacher;
+
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Calculates a sequence interpolant for a formula split into multiple partitions
+ * The learning loop for each cut point runs concurrently, each with its own solver context and Learner
+ */
+public class SequenceInterpolator {
+    private final SolverContext context;
+    private final SolverContextFactory.Solvers solver;
+    private final List<BooleanFormula> partitions;
+    private final String learnerEnv;
+    private final String learnerExec;
+    private final String outputPath;
+    private final int initialDataSize;
+    private final int updateDataSize;
+    private final boolean runBothChecks;
+    private final String learner;
+    private final int threads;
+    private final int shards;
+
+    /**
+     * @param context         the JavaSMT context containing the partitions
+     * @param solver          the solver used for the contexts of the cut points
+     * @param partitions      the partitions of the formula, their conjunction is unsatisfiable
+     * @param outputPath      the relative path for the learner communication, each cut point uses a subdirectory
+     * @param initialDataSize the size of the initial data set
+     * @param updateDataSize  the amount of assignments for each failed check
+     * @param runBothChecks   always run both checks or iterate on first failed check
+     * @param threads         the maximum number of cut points interpolated at the same time
+     * @param shards          the number of threads enumerating assignments for each cut point
+     */
+    public SequenceInterpolator(SolverContext context,
+                                SolverContextFactory.Solvers solver,
+                                List<BooleanFormula> partitions,
+                                String learnerEnv,
+                                String learnerExec,
+                                String outputPath,
+                                int initialDataSize,
+                                int updateDataSize,
+                                boolean runBothChecks,
+                                String learner,
+                                int threads,
+                                int shards) {
+        this.context = context;
+        this.solver = solver;
+        this.partitions = partitions;
+        this.learnerEnv = learnerEnv;
+        this.learnerExec = learnerExec;
+        this.outputPath = outputPath;
+        this.initialDataSize = initialDataSize;
+        this.updateDataSize = updateDataSize;
+        this.runBothChecks = runBothChecks;
+        this.learner = learner;
+        this.threads = threads;
+        this.shards = shards;
+    }
+
+    /**
+     * Generates an inductive sequence interpolant of the saved partitions
+     * The i-th interpolant is implied by the first i partitions and together with the remaining partitions unsatisfiable
+     * Each interpolant together with the next partition implies the following interpolant
+     *
+     * @return the sequence of interpolants, one for each cut point
+     */
+    public List<BooleanFormula> interpolate() throws InterruptedException {
+        FormulaManager fmgr = context.getFormulaManager();
+        BooleanFormulaManager bfmr = fmgr.getBooleanFormulaManager();
+        int cuts = partitions.size() - 1;
+        System.out.println("running sequence interpolation with " + cuts + " cut points");
+        //the formulas are exchanged as SMT-LIB, so only the own context is used in each thread
+        List<Future<String>> results = new ArrayList<>(cuts);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, cuts)));
+        try {
+            for (int cut = 1; cut <= cuts; cut++) {
+                String first = fmgr.dumpFormula(bfmr.and(partitions.subList(0, cut))).toString();
+                String second = fmgr.dumpFormula(bfmr.and(partitions.subList(cut, partitions.size()))).toString();
+                String cutPath = outputPath + "/cut_" + cut;
+                results.add(executor.submit(() -> interpolateCut(first, second, cutPath)));
+            }
+            List<BooleanFormula> interpolants = new ArrayList<>(cuts);
+            for (Future<String> result : results) {
+                interpolants.add(fmgr.parse(result.get()));
+            }
+            return makeInductive(interpolants, executor);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the learning loop for one cut point in a new solver context
+     *
+     * @param first,second the formulas before and after the cut point as SMT-LIB
+     * @param cutPath      the output directory for the learner communication of this cut point
+     * @return the interpolant of the cut point as SMT-LIB
+     */
+    private String interpolateCut(String first, String second, String cutPath)
+            throws InvalidConfigurationException, IOException {
+        Files.createDirectories(Path.of(cutPath));
+        try (SolverContext cutContext = SolverContextFactory.createSolverContext(solver)) {
+            FormulaManager cutManager = cutContext.getFormulaManager();
+            TeacherController controller = new TeacherController(cutContext,
+                    cutManager.parse(first),
+                    cutManager.parse(second),
+                    learnerEnv,
+                    learnerExec,
+                    cutPath,
+                    initialDataSize,
+                    updateDataSize,
+                    runBothChecks,
+                    learner,
+                    null,
+                    shards);
+            return cutManager.dumpFormula(controller.interpolate()).toString();
+        }
+    }
+
+    /**
+     * Combines the independently learned interpolants into an inductive sequence
+     * An interpolant that is not implied by its predecessor and the partition in between is learned again
+     * with the predecessor and the partition as first formula, which is still a valid interpolant for its cut point
+     * The cut points are learned again in waves on the thread pool, all failing cut points of a wave at the same time
+     * against their current predecessor, a cut point is checked again if its predecessor was learned again
+     * The interpolant of cut point k is final after at most k-1 waves, as the first interpolant never changes
+     *
+     * @param interpolants the interpolants of each cut point
+     * @param executor     the thread pool of the cut points
+     * @return the inductive sequence of interpolants
+     */
+    private List<BooleanFormula> makeInductive(List<BooleanFormula> interpolants, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        FormulaManager fmgr = context.getFormulaManager();
+        BooleanFormulaManager bfmr = fmgr.getBooleanFormulaManager();
+        List<BooleanFormula> sequence = new ArrayList<>(interpolants);
+        //the first interpolant is implied by the first partition alone, all others are checked
+        Set<Integer> pending = new TreeSet<>();
+        for (int cut = 2; cut <= sequence.size(); cut++) {
+            pending.add(cut);
+        }
+        int wave = 0;
+        while (!pending.isEmpty()) {
+            System.out.println("checking inductiveness, wave " + ++wave + ", cut points " + pending);
+            Map<Integer, Future<String>> relearning = new TreeMap<>();
+            for (int cut : pending) {
+                BooleanFormula previous = bfmr.and(sequence.get(cut - 2), partitions.get(cut - 1));
+                if (!implies(previous, sequence.get(cut - 1))) {
+                    System.out.println("interpolant of cut point " + cut + " not inductive, learning again");
+                    String first = fmgr.dumpFormula(previous).toString();
+                    String second = fmgr.dumpFormula(bfmr.and(partitions.subList(cut, partitions.size()))).toString();
+                    String cutPath = outputPath + "/cut_" + cut;
+                    relearning.put(cut, executor.submit(() -> interpolateCut(first, second, cutPath)));
+                }
+            }
+            pending = new TreeSet<>();
+            for (Map.Entry<Integer, Future<String>> result : relearning.entrySet()) {
+                sequence.set(result.getKey() - 1, fmgr.parse(result.getValue().get()));
+                //the successor was checked against the replaced interpolant
+                if (result.getKey() < sequence.size()) {
+                    pending.add(result.getKey() + 1);
+                }
+            }
+        }
+        return sequence;
+    }
+
+    private boolean implies(BooleanFormula premise, BooleanFormula conclusion) throws InterruptedException {
+        BooleanFormulaManager bfmr = context.getFormulaManager().getBooleanFormulaManager();
+        try (ProverEnvironment prover = context.newProverEnvironment()) {
+            prover.addConstraint(bfmr.and(premise, bfmr.not(conclusion)));
+            return prover.isUnsat();
+        } catch (SolverException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
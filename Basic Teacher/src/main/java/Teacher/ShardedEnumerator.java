@@ -0,0 +1,262 @@
+package Teacher;
+
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.api.*;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Enumerates assignments of a formula in parallel by partitioning the space of the common variables into disjoint cubes
+ * Boolean variables are split on their assignment, integer variables on a pivot taken from a first model
+ * Each cube is enumerated by a worker thread with its own solver context, so no point is generated twice
+ * The worker threads and their contexts are kept for all checks until the enumerator is closed,
+ * the base formulas of the checks are parsed once in each worker context
+ */
+class ShardedEnumerator implements AutoCloseable {
+    //solvers whose separate contexts can be used from separate threads at the same time
+    private static final Set<SolverContextFactory.Solvers> THREAD_SAFE_SOLVERS = EnumSet.of(
+            SolverContextFactory.Solvers.SMTINTERPOL,
+            SolverContextFactory.Solvers.PRINCESS,
+            SolverContextFactory.Solvers.Z3);
+    private final SolverContext context;
+    private final Map<String, Formula> commonVars;
+    private final int shards;
+    private final Map<BooleanFormula, String> baseDumps = new HashMap<>();
+    private final BlockingQueue<Worker> workers = new LinkedBlockingQueue<>();
+    private ExecutorService executor;
+
+    /**
+     * @param context    the JavaSMT context containing the formulas
+     * @param commonVars the common variables of the interpolation formulas, the cubes are built over them
+     * @param shards     the number of worker threads, 1 enumerates sequentially in the given context,
+     *                   solvers not known to be thread-safe always enumerate sequentially
+     */
+    ShardedEnumerator(SolverContext context, Map<String, Formula> commonVars, int shards) {
+        this.context = context;
+        this.commonVars = commonVars;
+        if (shards > 1 && !THREAD_SAFE_SOLVERS.contains(context.getSolverName())) {
+            System.out.println(context.getSolverName() + " is not known to be thread-safe, enumerating sequentially");
+            this.shards = 1;
+        } else {
+            this.shards = shards;
+        }
+    }
+
+    /**
+     * checks if the given formula is satisfiable and passes multiple assignments to the sink
+     *
+     * @see #generateAssignments(BooleanFormula, BooleanFormula, int, Consumer)
+     */
+    boolean generateAssignments(BooleanFormula base, int count, Consumer<List<Model.ValueAssignment>> sink) {
+        return generateAssignments(base, context.getFormulaManager().getBooleanFormulaManager().makeTrue(), count, sink);
+    }
+
+    /**
+     * checks if the conjunction of base and constraint is satisfiable and passes multiple assignments to the sink
+     * runs sequentially, if only one shard is used or no common variable can be split
+     *
+     * @param base       the fixed part of the formula containing the common variables, parsed once per worker
+     * @param constraint the part of the formula changing between checks
+     * @param count      amount of assignments to be generated
+     * @param sink       the consumer of the assignments of each satisfying model, is called by one thread at a time
+     * @return a boolean denoting if the formula is satisfiable
+     */
+    boolean generateAssignments(BooleanFormula base,
+                                BooleanFormula constraint,
+                                int count,
+                                Consumer<List<Model.ValueAssignment>> sink) {
+        FormulaManager fmgr = context.getFormulaManager();
+        BooleanFormulaManager bfmr = fmgr.getBooleanFormulaManager();
+        BooleanFormula formula = bfmr.and(base, constraint);
+        if (shards <= 1 || count < 2) {
+            return ModelValidator.generateAssignments(context, formula, count, sink);
+        }
+        //a first model decides satisfiability and provides the pivots for the integer variables
+        Map<String, Object> pivots = new TreeMap<>();
+        BooleanFormula blockPivot;
+        try (ProverEnvironment prover = context.newProverEnvironment(SolverContext.ProverOptions.GENERATE_MODELS)) {
+            prover.addConstraint(formula);
+            if (prover.isUnsat()) {
+                return false;
+            }
+            List<BooleanFormula> modelAssignmentsAsFormulas = new ArrayList<>();
+            try (Model model = prover.getModel()) {
+                List<Model.ValueAssignment> assignments = model.asList();
+                for (Model.ValueAssignment assignment : assignments) {
+                    modelAssignmentsAsFormulas.add(assignment.getAssignmentAsFormula());
+                    Object value = assignment.getValue();
+                    if (commonVars.containsKey(assignment.getName())
+                            && (value instanceof Boolean || value instanceof BigInteger)) {
+                        pivots.put(assignment.getName(), value);
+                    }
+                }
+                //the first model is one of the generated assignments
+                sink.accept(assignments);
+            }
+            blockPivot = bfmr.not(bfmr.and(modelAssignmentsAsFormulas));
+        } catch (InterruptedException | SolverException e) {
+            throw new RuntimeException(e);
+        }
+        //split on as many variables as needed for one cube per shard
+        int splitVars = Math.min(pivots.size(), 32 - Integer.numberOfLeadingZeros(shards - 1));
+        if (splitVars == 0) {
+            ModelValidator.generateAssignments(context, bfmr.and(formula, blockPivot), count - 1, sink);
+            return true;
+        }
+        List<String> splitNames = new ArrayList<>(pivots.keySet()).subList(0, splitVars);
+        int cubes = 1 << splitVars;
+        System.out.println("enumerating " + cubes + " cubes with " + shards + " threads, split on " + splitNames);
+        //the formulas are exchanged as SMT-LIB, the base formula only once per worker context
+        String baseDump = baseDumps.computeIfAbsent(base, f -> fmgr.dumpFormula(f).toString());
+        String constraintDump = fmgr.dumpFormula(bfmr.and(constraint, blockPivot)).toString();
+        AtomicInteger budget = new AtomicInteger(count - 1);
+        Consumer<List<Model.ValueAssignment>> synchronizedSink = assignments -> {
+            synchronized (sink) {
+                sink.accept(assignments);
+            }
+        };
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(shards);
+        }
+        List<Future<?>> results = new ArrayList<>(cubes);
+        for (int cube = 0; cube < cubes; cube++) {
+            int cubeBits = cube;
+            results.add(executor.submit(() -> {
+                if (budget.get() <= 0) {
+                    //used up by the other cubes or stopped after a failure
+                    return null;
+                }
+                Worker worker = borrowWorker();
+                try {
+                    worker.enumerateCube(base, baseDump, constraintDump, splitNames, pivots, cubeBits, budget,
+                            synchronizedSink);
+                } finally {
+                    workers.add(worker);
+                }
+                return null;
+            }));
+        }
+        awaitCubes(results, budget);
+        return true;
+    }
+
+    /**
+     * Waits for all cubes, after the first failure the budget is cleared, so the running cubes stop before their next
+     * check and the waiting cubes return right away
+     * No cube calls the sink or holds a worker context after this method returned
+     */
+    private static void awaitCubes(List<Future<?>> results, AtomicInteger budget) {
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<?> result : results) {
+            while (true) {
+                try {
+                    result.get();
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause();
+                    budget.set(0);
+                    break;
+                } catch (InterruptedException e) {
+                    //the running cubes still have to finish before returning
+                    interrupted = true;
+                    if (failure == null) failure = e;
+                    budget.set(0);
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    private Worker borrowWorker() throws InvalidConfigurationException {
+        //at most one context per worker thread is created, as each thread returns its context after a cube
+        Worker worker = workers.poll();
+        return worker != null ? worker : new Worker(SolverContextFactory.createSolverContext(context.getSolverName()));
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.forEach(worker -> worker.context.close());
+        workers.clear();
+    }
+
+    /**
+     * A solver context of one worker thread with the base formulas already parsed in it
+     */
+    private static final class Worker {
+        private final SolverContext context;
+        private final Map<BooleanFormula, ParsedBase> bases = new HashMap<>();
+
+        private Worker(SolverContext context) {
+            this.context = context;
+        }
+
+        /**
+         * Enumerates the assignments of the formula inside one cube until the shared budget is used up
+         *
+         * @param base     the base formula in the context of the enumerator, the key of its parsed version
+         * @param cubeBits the side of each split variable, bit i set means true or above the pivot for variable i
+         * @param budget   the amount of assignments still to be generated by all cubes
+         */
+        private void enumerateCube(BooleanFormula base,
+                                   String baseDump,
+                                   String constraintDump,
+                                   List<String> splitNames,
+                                   Map<String, Object> pivots,
+                                   int cubeBits,
+                                   AtomicInteger budget,
+                                   Consumer<List<Model.ValueAssignment>> sink)
+                throws InterruptedException, SolverException {
+            FormulaManager fmgr = context.getFormulaManager();
+            BooleanFormulaManager bfmr = fmgr.getBooleanFormulaManager();
+            IntegerFormulaManager ifmr = fmgr.getIntegerFormulaManager();
+            ParsedBase parsedBase = bases.computeIfAbsent(base, f -> {
+                BooleanFormula formula = fmgr.parse(baseDump);
+                return new ParsedBase(formula, fmgr.extractVariables(formula));
+            });
+            //restrict the formula to the cube, the common variables all occur in the base formula
+            List<BooleanFormula> cube = new ArrayList<>(splitNames.size());
+            for (int i = 0; i < splitNames.size(); i++) {
+                boolean upper = (cubeBits & (1 << i)) != 0;
+                Formula var = parsedBase.vars().get(splitNames.get(i));
+                Object pivot = pivots.get(splitNames.get(i));
+                if (pivot instanceof Boolean) {
+                    cube.add(upper ? (BooleanFormula) var : bfmr.not((BooleanFormula) var));
+                } else {
+                    IntegerFormula pivotNumber = ifmr.makeNumber((BigInteger) pivot);
+                    cube.add(upper
+                            ? ifmr.greaterThan((IntegerFormula) var, pivotNumber)
+                            : ifmr.lessOrEquals((IntegerFormula) var, pivotNumber));
+                }
+            }
+            try (ProverEnvironment prover = context.newProverEnvironment(SolverContext.ProverOptions.GENERATE_MODELS)) {
+                prover.addConstraint(parsedBase.formula());
+                prover.addConstraint(fmgr.parse(constraintDump));
+                prover.addConstraint(bfmr.and(cube));
+                ModelValidator.enumerateModels(prover, bfmr, budget, sink);
+            }
+        }
+    }
+
+    private record ParsedBase(BooleanFormula formula, Map<String, Formula> vars) {
+    }
+}
@@ -0,0 +1,172 @@
+package Teacher;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.sosy_lab.java_smt.api.BooleanFormula;
+import org.sosy_lab.java_smt.api.Formula;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Deterministic stand-in for the MIGml Learner, used by the benchmark runner without the Python environment
+ * Learns a decision tree with thresholds on single variables that separates the positive and negative points
+ * Accepts the same command line as the MIGml Learner, "-d" data file and "-t" hypothesis file, other options are ignored
+ * The sorts of the variables are read from the file written by {@link #writeVariableSorts}, missing variables are Int
+ */
+public class StubLearner {
+    static final String SORTS_FILE = "variable_sorts.csv";
+
+    public static void main(String[] args) throws IOException {
+        String dataPath = null;
+        String hypothesisPath = null;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("-d")) dataPath = args[i + 1];
+            if (args[i].equals("-t")) hypothesisPath = args[i + 1];
+        }
+        if (dataPath == null || hypothesisPath == null) {
+            System.out.println("Usage: StubLearner -d <data file> -t <hypothesis file>");
+            System.exit(1);
+        }
+        List<String> vars = new ArrayList<>();
+        List<Point> points = new ArrayList<>();
+        try (CSVParser parser = CSVFormat.DEFAULT.parse(new FileReader(dataPath))) {
+            for (CSVRecord record : parser) {
+                if (parser.getRecordNumber() == 1) {
+                    //header "ID" followed by the variables, the label column has no name
+                    for (int i = 1; i < record.size(); i++) vars.add(record.get(i));
+                    continue;
+                }
+                BigInteger[] values = new BigInteger[vars.size()];
+                for (int i = 0; i < vars.size(); i++) {
+                    values[i] = new BigInteger(record.get(i + 1).trim());
+                }
+                points.add(new Point(values, record.get(record.size() - 1).trim().equals("1")));
+            }
+        }
+        Set<String> booleanVars = readBooleanVars(Path.of(dataPath).resolveSibling(SORTS_FILE));
+        //the data set is written from a hash set, sort it for a deterministic result
+        points.sort(Point::compareTo);
+        String hypothesis = learn(points, vars, booleanVars);
+        try (FileWriter writer = new FileWriter(hypothesisPath)) {
+            for (String var : vars) {
+                writer.write("(declare-fun " + toSmtSymbol(var) + " () "
+                        + (booleanVars.contains(var) ? "Bool" : "Int") + ")\n");
+            }
+            writer.write("(assert " + hypothesis + ")\n");
+        }
+    }
+
+    /**
+     * Writes the sorts of the common variables next to the data set, so the stub can declare them
+     *
+     * @param commonVars the common variables of the interpolation formulas
+     * @param outputPath the directory of the learner communication
+     */
+    static void writeVariableSorts(Map<String, Formula> commonVars, String outputPath) throws IOException {
+        try (CSVPrinter csvPrinter = new CSVPrinter(new FileWriter(outputPath + "/" + SORTS_FILE), CSVFormat.DEFAULT)) {
+            for (Map.Entry<String, Formula> var : commonVars.entrySet()) {
+                csvPrinter.printRecord(var.getKey(), var.getValue() instanceof BooleanFormula ? "Bool" : "Int");
+            }
+        }
+    }
+
+    private static Set<String> readBooleanVars(Path sortsPath) throws IOException {
+        Set<String> booleanVars = new HashSet<>();
+        if (!Files.exists(sortsPath)) {
+            return booleanVars;
+        }
+        try (CSVParser parser = CSVFormat.DEFAULT.parse(new FileReader(sortsPath.toFile()))) {
+            for (CSVRecord record : parser) {
+                if (record.get(1).equals("Bool")) booleanVars.add(record.get(0));
+            }
+        }
+        return booleanVars;
+    }
+
+    /**
+     * Learns a decision tree splitting on the threshold with the lowest Gini impurity
+     *
+     * @param points      the points of the current node
+     * @param vars        the names of the variables
+     * @param booleanVars the variables of sort Bool, encoded as 1 and 0 in the data set
+     * @return the decision tree as SMT-LIB term
+     */
+    private static String learn(List<Point> points, List<String> vars, Set<String> booleanVars) {
+        int positives = (int) points.stream().filter(p -> p.label).count();
+        if (positives == 0 || positives == points.size()) {
+            return positives == 0 ? "false" : "true";
+        }
+        int bestVar = -1;
+        BigInteger bestThreshold = null;
+        double bestImpurity = Double.MAX_VALUE;
+        for (int var = 0; var < vars.size(); var++) {
+            int index = var;
+            List<Point> sorted = new ArrayList<>(points);
+            sorted.sort(Comparator.comparing(p -> p.values[index]));
+            //sweep over the thresholds between distinct values
+            int leftPositives = 0;
+            for (int i = 0; i < sorted.size() - 1; i++) {
+                if (sorted.get(i).label) leftPositives++;
+                BigInteger value = sorted.get(i).values[var];
+                if (value.equals(sorted.get(i + 1).values[var])) continue;
+                int left = i + 1;
+                int right = sorted.size() - left;
+                double impurity = (left * gini(leftPositives, left)
+                        + right * gini(positives - leftPositives, right)) / sorted.size();
+                if (impurity < bestImpurity) {
+                    bestImpurity = impurity;
+                    bestVar = var;
+                    bestThreshold = value;
+                }
+            }
+        }
+        if (bestVar < 0) {
+            //equal points with different labels, use the majority label
+            return 2 * positives >= points.size() ? "true" : "false";
+        }
+        List<Point> below = new ArrayList<>();
+        List<Point> above = new ArrayList<>();
+        for (Point point : points) {
+            (point.values[bestVar].compareTo(bestThreshold) <= 0 ? below : above).add(point);
+        }
+        String var = toSmtSymbol(vars.get(bestVar));
+        //the only threshold of a boolean variable is 0, the points below are the false ones
+        String condition = booleanVars.contains(vars.get(bestVar))
+                ? "(not " + var + ")"
+                : "(<= " + var + " " + toSmtNumber(bestThreshold) + ")";
+        return "(ite " + condition + " "
+                + learn(below, vars, booleanVars) + " " + learn(above, vars, booleanVars) + ")";
+    }
+
+    private static double gini(int positives, int size) {
+        double p = (double) positives / size;
+        return 2 * p * (1 - p);
+    }
+
+    private static String toSmtSymbol(String name) {
+        return name.matches("[A-Za-z~!@$%^&*_+=<>.?/-][A-Za-z0-9~!@$%^&*_+=<>.?/-]*") ? name : "|" + name + "|";
+    }
+
+    private static String toSmtNumber(BigInteger number) {
+        return number.signum() < 0 ? "(- " + number.negate() + ")" : number.toString();
+    }
+
+    private record Point(BigInteger[] values, boolean label) implements Comparable<Point> {
+        @Override
+        public int compareTo(Point other) {
+            for (int i = 0; i < values.length; i++) {
+                int compare = values[i].compareTo(other.values[i]);
+                if (compare != 0) return compare;
+            }
+            return Boolean.compare(label, other.label);
+        }
+    }
+}
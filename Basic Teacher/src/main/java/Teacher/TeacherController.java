@@ -32,7 +32,12 @@ public class TeacherController {
     private final int updateDataSize;
     private final boolean runBothChecks;
     private final String learner;
+    private final int shards;
+    private final HypothesisBuilder hypothesisBuilder;
     private int iterations = 0;
+    private int dataSize = 0;
+    private long solverTime = 0;
+    private long learnerTime = 0;
 
     /**
      * @param firstFormula,secondFormula the formulas that will be interpolated
@@ -53,6 +58,28 @@ public class TeacherController {
                              int updateDataSize,
                              boolean runBothChecks,
                              String learner) {
+        this(context, firstFormula, secondFormula, learnerEnv, learnerExec, outputPath,
+                initialDataSize, updateDataSize, runBothChecks, learner, null, 1);
+    }
+
+    /**
+     * @param varContext an SMTInterpol context for calculating the common variables,
+     *                   a temporary context is created if null
+     * @param shards     the number of threads enumerating assignments, each with its own solver context
+     * @see #TeacherController(SolverContext, BooleanFormula, BooleanFormula, String, String, String, int, int, boolean, String)
+     */
+    public TeacherController(SolverContext context,
+                             BooleanFormula firstFormula,
+                             BooleanFormula secondFormula,
+                             String learnerEnv,
+                             String learnerExec,
+                             String outputPath,
+                             int initialDataSize,
+                             int updateDataSize,
+                             boolean runBothChecks,
+                             String learner,
+                             SolverContext varContext,
+                             int shards) {
         this.context = context;
         this.A = firstFormula;
         this.B = secondFormula;
@@ -63,7 +90,9 @@ public class TeacherController {
         this.updateDataSize = updateDataSize;
         this.runBothChecks = runBothChecks;
         this.learner = learner;
-        this.commonVars = calculateCommonVars();
+        this.shards = shards;
+        this.commonVars = varContext == null ? calculateCommonVars() : calculateCommonVars(varContext);
+        this.hypothesisBuilder = new HypothesisBuilder(context, commonVars);
     }
 
     /**
@@ -72,13 +101,22 @@ public class TeacherController {
      * @return a valid interpolant of the saved formulas
      */
     public BooleanFormula interpolate() {
+        //the worker contexts of the enumeration are kept for all checks of this interpolation
+        try (ShardedEnumerator enumerator = new ShardedEnumerator(context, commonVars, shards)) {
+            return interpolate(enumerator);
+        }
+    }
+
+    private BooleanFormula interpolate(ShardedEnumerator enumerator) {
         //print config
         System.out.println("Size of initial data set: " + initialDataSize);
         System.out.println("Number of data per iteration: " + updateDataSize);
         //generate the initial data set
         Set<List<Number>> data;
+        long start = System.nanoTime();
         try {
-            data = DataGenerator.getInitialData(context, A, B, commonVars, initialDataSize);
+            data = DataGenerator.getInitialData(A, B, commonVars, initialDataSize, enumerator);
+            dataSize = data.size();
         } catch (DataGenerator.NoAssignmentFirstException e) {
             //first formula unsatisfiable
             System.out.println("First Formula unsatisfiable return trivial interpolant \"False\"");
@@ -87,16 +125,22 @@ public class TeacherController {
             //second formula unsatisfiable
             System.out.println("Second Formula unsatisfiable return trivial interpolant \"True\"");
             return context.getFormulaManager().getBooleanFormulaManager().makeTrue();
+        } finally {
+            solverTime += System.nanoTime() - start;
         }
         //run the learning loop
         while (true) {
             //print number of iterations
             System.out.println("Number of iterations: " + ++iterations);
             //get hypothesis h from Learner
+            start = System.nanoTime();
             BooleanFormula h = learnerCall(data);
+            learnerTime += System.nanoTime() - start;
             //check if hypothesis is interpolant
-            Pair<Boolean, Pair<List<Model>, List<Model>>> validationResult = ModelValidator.validateModel(
-                    context, A, B, h, updateDataSize, runBothChecks);
+            start = System.nanoTime();
+            Pair<Boolean, Pair<Set<List<Number>>, Set<List<Number>>>> validationResult = ModelValidator.validateModel(
+                    context, A, B, h, updateDataSize, runBothChecks, commonVars, enumerator);
+            solverTime += System.nanoTime() - start;
             if (validationResult.getFirst()) {
                 System.out.println("valid interpolant");
                 System.out.println(h);
@@ -108,12 +152,47 @@ public class TeacherController {
                 System.out.println(h);
                 data = DataGenerator.updateData(data,
                         validationResult.getSecond().getFirst(),
-                        validationResult.getSecond().getSecond(),
-                        commonVars);
+                        validationResult.getSecond().getSecond());
+                dataSize = data.size();
             }
         }
     }
 
+    /**
+     * @return the common variables of the formulas with their names as keys
+     */
+    public Map<String, Formula> getCommonVars() {
+        return commonVars;
+    }
+
+    /**
+     * @return the number of learning iterations run so far
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the current size of the data set
+     */
+    public int getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * @return the time in nanoseconds spent generating data and validating hypotheses with the solver
+     */
+    public long getSolverTime() {
+        return solverTime;
+    }
+
+    /**
+     * @return the time in nanoseconds spent in the Learner, including writing the data and building the hypothesis
+     */
+    public long getLearnerTime() {
+        return learnerTime;
+    }
+
     /**
      * calculates a HashMap of the common variables of the saved formulas
      * with their names as keys and the JavaSMT formulas as values
@@ -122,12 +201,31 @@ public class TeacherController {
      */
     private Map<String, Formula> calculateCommonVars() {
         try (SolverContext varContext = SolverContextFactory.createSolverContext(SolverContextFactory.Solvers.SMTINTERPOL)) {
+            return calculateCommonVars(varContext);
+        } catch (InvalidConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * calculates the common variables in the given SMTInterpol context
+     *
+     * @param varContext the context the variables are extracted in
+     * @return a HashMap containing the common variables
+     */
+    private Map<String, Formula> calculateCommonVars(SolverContext varContext) {
         FormulaManager manager = context.getFormulaManager();
         FormulaManager varManager = varContext.getFormulaManager();
         Map<String, Formula> commonVars = new HashMap<>();
         //get all variables of the formulas
-        ImmutableMap<String, Formula> varsA = varManager.extractVariables(varManager.translateFrom(A, manager));
-        ImmutableMap<String, Formula> varsB = varManager.extractVariables(varManager.translateFrom(B, manager));
+        ImmutableMap<String, Formula> varsA;
+        ImmutableMap<String, Formula> varsB;
+        try {
+            varsA = varManager.extractVariables(varManager.translateFrom(A, manager));
+            varsB = varManager.extractVariables(varManager.translateFrom(B, manager));
+        } catch (IllegalArgumentException e) {
+            throw new FormulaHandler.FormulaParseException("translation into " + varContext.getSolverName(), e);
+        }
         //compare the variables of both formulas and save the matches
         for (String var : varsA.keySet()) {
             if (varsB.containsKey(var)) commonVars.put(var, varsB.get(var));
@@ -143,15 +241,12 @@ public class TeacherController {
         System.out.println("Number of variables second formula: " + varsB.size());
         System.out.println("Number of common variables: " + commonVars.size());
         return commonVars;
-        } catch (InvalidConfigurationException e) {
-            throw new RuntimeException(e);
-        }
     }
 
     /**
      * Sends the data points to the Learner and waits for a result
      * Writes the data points to a file and evokes the Learner
-     * Expects a SMT-LIB formula as result and parses it to JavaSMT
+     * Expects a SMT-LIB formula as result and builds it in JavaSMT
      *
      * @return the hypothesis of the learner converted to JavaSMT
      */
@@ -189,7 +284,7 @@ public class TeacherController {
             //System.out.println(waitFor);
             //parse output from Learner
             String hypothesis = new String(readAllBytes(Path.of(outputPath + "/hypothesis.smt")));
-            return context.getFormulaManager().parse(hypothesis);
+            return hypothesisBuilder.build(hypothesis);
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
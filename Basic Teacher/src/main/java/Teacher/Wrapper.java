@@ -24,11 +24,25 @@ public class Wrapper {
         HelpFormatter helper = new HelpFormatter();
         try {
             cmd = parser.parse(options, args);
-            try (SolverContext context = SolverContextFactory.createSolverContext(parseSolver(cmd))) {
+            if (cmd.hasOption("server")) {
+                //keep running and answer requests
+                runServer(cmd);
+                return;
+            }
+            SolverContextFactory.Solvers solver = parseSolver(cmd);
+            try (SolverContext context = SolverContextFactory.createSolverContext(solver)) {
                 if (cmd.hasOption("so")) {
                     //only split formulas
                     System.out.println("only splitting formulas");
                     generateSplit(context, cmd);
+                } else if (cmd.hasOption("n")) {
+                    //run sequence interpolation
+                    System.out.println("running sequence interpolation");
+                    SequenceInterpolator interpolator = buildSequenceInterpolator(context, solver, cmd);
+                    List<BooleanFormula> interpolants = interpolator.interpolate();
+                    for (int i = 0; i < interpolants.size(); i++) {
+                        System.out.println("Learned Interpolant " + (i + 1) + " :" + interpolants.get(i));
+                    }
                 } else {
                     //run interpolation
                     System.out.println("running interpolation");
@@ -36,7 +50,7 @@ public class Wrapper {
                     BooleanFormula interpolant = controller.interpolate();
                     System.out.println("Learned Interpolant :" + interpolant);
                 }
-            } catch (InvalidConfigurationException e) {
+            } catch (InvalidConfigurationException | InterruptedException e) {
                 throw new RuntimeException(e);
             }
         } catch (ParseException e) {
@@ -47,11 +61,33 @@ public class Wrapper {
 
     }
 
+    private static void runServer(CommandLine cmd) throws ParseException {
+        int threads = Integer.parseInt(cmd.getOptionValue("t",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int queueSize = Integer.parseInt(cmd.getOptionValue("sq", "64"));
+        //the Learner and the output directory are fixed by the server, requests may not set them
+        try (InterpolationServer server = new InterpolationServer(cmd.getOptionValue("server"),
+                threads,
+                queueSize,
+                cmd.getOptionValue("lenv", "../MIGML_Learner/sklearn/venvSKlearn/Scripts/python.exe"),
+                cmd.getOptionValue("lexe", "../MIGML_Learner/sklearn/learning/learn_invariant.py"),
+                cmd.getOptionValue("o", "../output"))) {
+            //warm up the contexts of the default solver
+            server.warmUp(parseSolver(cmd));
+            server.run();
+        } catch (IOException | InvalidConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private static void generateSplit(SolverContext context, CommandLine cmd) throws ParseException {
+        generateSplit(context, cmd, cmd.getOptionValue("o", "../output"));
+    }
+
+    static void generateSplit(SolverContext context, CommandLine cmd, String outputPath) throws ParseException {
         try {
             Pair<BooleanFormula, BooleanFormula> formulaPair = parseFormulas(context, cmd);
             FormulaManager fmgr = context.getFormulaManager();
-            String outputPath = cmd.getOptionValue("o", "../output");
             String formulaName = Path.of(cmd.getOptionValue("fs")).getFileName().toString();
             try (FileWriter fileWriter = new FileWriter(outputPath + "/first_formula_" + formulaName)) {
                 fileWriter.write(fmgr.dumpFormula(formulaPair.getFirst()).toString());
@@ -66,20 +102,67 @@ public class Wrapper {
     }
 
     private static TeacherController buildController(SolverContext context, CommandLine cmd) throws ParseException {
+        return buildController(context,
+                null,
+                cmd,
+                cmd.getOptionValue("lenv", "../MIGML_Learner/sklearn/venvSKlearn/Scripts/python.exe"),
+                cmd.getOptionValue("lexe", "../MIGML_Learner/sklearn/learning/learn_invariant.py"),
+                cmd.getOptionValue("o", "../output"));
+    }
+
+    static TeacherController buildController(SolverContext context,
+                                             SolverContext varContext,
+                                             CommandLine cmd,
+                                             String learnerEnv,
+                                             String learnerExec,
+                                             String outputPath) throws ParseException {
         try {
             Pair<BooleanFormula, BooleanFormula> formulaPair = parseFormulas(context, cmd);
             return new TeacherController(context,
                     formulaPair.getFirst(),
                     formulaPair.getSecond(),
+                    learnerEnv,
+                    learnerExec,
+                    outputPath,
+                    Integer.parseInt(cmd.getOptionValue("si", "2")),
+                    Integer.parseInt(cmd.getOptionValue("sd", "1")),
+                    cmd.hasOption("rb"),
+                    cmd.getOptionValue("l", "haltermann"),
+                    varContext,
+                    Integer.parseInt(cmd.getOptionValue("sh", "1")));
+        } catch (FormulaHandler.NoSplitException | InterruptedException |
+                 SolverException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static SequenceInterpolator buildSequenceInterpolator(SolverContext context,
+                                                                  SolverContextFactory.Solvers solver,
+                                                                  CommandLine cmd) throws ParseException {
+        if (!cmd.hasOption("fs")) {
+            throw new ParseException("Sequence interpolation needs formula-single argument");
+        }
+        try {
+            System.out.println("running with single formula");
+            BooleanFormula formula = FormulaHandler.getFormula(context, cmd.getOptionValue("fs"));
+            List<BooleanFormula> partitions = FormulaHandler.splitFormulaSequence(context,
+                    context.getFormulaManager().getBooleanFormulaManager(),
+                    formula,
+                    Integer.parseInt(cmd.getOptionValue("n")));
+            return new SequenceInterpolator(context,
+                    solver,
+                    partitions,
                     cmd.getOptionValue("lenv", "../MIGML_Learner/sklearn/venvSKlearn/Scripts/python.exe"),
                     cmd.getOptionValue("lexe", "../MIGML_Learner/sklearn/learning/learn_invariant.py"),
                     cmd.getOptionValue("o", "../output"),
                     Integer.parseInt(cmd.getOptionValue("si", "2")),
                     Integer.parseInt(cmd.getOptionValue("sd", "1")),
                     cmd.hasOption("rb"),
-                    cmd.getOptionValue("l", "haltermann"));
-        } catch (FormulaHandler.NoSplitException | InterruptedException |
-                 SolverException e) {
+                    cmd.getOptionValue("l", "haltermann"),
+                    Integer.parseInt(cmd.getOptionValue("t",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    Integer.parseInt(cmd.getOptionValue("sh", "1")));
+        } catch (FormulaHandler.NoSplitException | InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
@@ -117,7 +200,7 @@ public class Wrapper {
     }
 
     @NotNull
-    private static SolverContextFactory.Solvers parseSolver(CommandLine cmd) throws ParseException {
+    static SolverContextFactory.Solvers parseSolver(CommandLine cmd) throws ParseException {
         String solverOption = cmd.getOptionValue("smt", "smtinterpol");
         System.out.println("using solver " + solverOption);
         return switch (solverOption) {
@@ -134,7 +217,7 @@ public class Wrapper {
         };
     }
 
-    private static Options defineCommandLineOptions() {
+    static Options defineCommandLineOptions() {
         Options options = new Options();
         //define options
         Option formulaSingle = Option.builder("fs")
@@ -260,6 +343,63 @@ public class Wrapper {
                         only works with formula-single argument""")
                 .build();
         options.addOption(splitOnly);
+
+        Option partitions = Option.builder("n")
+                .longOpt("partitions")
+                .argName("number of partitions")
+                .hasArg()
+                .type(Integer.class)
+                .desc("""
+                        Split formula into this many partitions and learn a sequence interpolant\s
+                        the cut points are interpolated concurrently\s
+                        only works with formula-single argument""")
+                .build();
+        options.addOption(partitions);
+
+        Option threads = Option.builder("t")
+                .longOpt("threads")
+                .argName("number of threads")
+                .hasArg()
+                .type(Integer.class)
+                .desc("""
+                        Maximum number of cut points interpolated at the same time\s
+                        in server mode the maximum number of requests solved at the same time\s
+                        defaults to the number of cores""")
+                .build();
+        options.addOption(threads);
+
+        Option server = Option.builder("server")
+                .longOpt("server")
+                .argName("server address")
+                .hasArg()
+                .desc("""
+                        Run as server listening on this local port or Unix domain socket path\s
+                        each request is one line of the formula, learner, size, run-both,\s
+                        smt-solver and split-only arguments,\s
+                        learner environment, executable and output path are taken from the server arguments,\s
+                        contexts of the solver given by smt-solver are created in advance""")
+                .build();
+        options.addOption(server);
+
+        Option serverQueue = Option.builder("sq")
+                .longOpt("server-queue")
+                .argName("server queue size")
+                .hasArg()
+                .type(Integer.class)
+                .desc("Maximum number of requests waiting in server mode, further requests are rejected")
+                .build();
+        options.addOption(serverQueue);
+
+        Option shards = Option.builder("sh")
+                .longOpt("shards")
+                .argName("number of shards")
+                .hasArg()
+                .type(Integer.class)
+                .desc("""
+                        Number of threads enumerating assignments in disjoint cubes of the common variables\s
+                        each thread uses its own solver context, 1 enumerates sequentially""")
+                .build();
+        options.addOption(shards);
         return options;
     }
 }
@@ -0,0 +1,75 @@
+package Teacher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.api.*;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DataGeneratorTest {
+    private SolverContext context;
+    private BooleanFormulaManager bfmr;
+    private IntegerFormulaManager ifmr;
+    private Map<String, Formula> commonVars;
+
+    @Before
+    public void setUp() throws InvalidConfigurationException {
+        context = SolverContextFactory.createSolverContext(SolverContextFactory.Solvers.SMTINTERPOL);
+        bfmr = context.getFormulaManager().getBooleanFormulaManager();
+        ifmr = context.getFormulaManager().getIntegerFormulaManager();
+        commonVars = new HashMap<>();
+        commonVars.put("x", ifmr.makeVariable("x"));
+        commonVars.put("b", bfmr.makeVariable("b"));
+        commonVars.put("y", ifmr.makeVariable("y"));
+        commonVars.put("z", ifmr.makeVariable("z"));
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void pointsFollowCommonVariableOrder() {
+        //y does not occur in the formula, so the model has no assignment for it
+        BooleanFormula formula = bfmr.and(
+                (BooleanFormula) commonVars.get("b"),
+                ifmr.equal((IntegerFormula) commonVars.get("x"), ifmr.makeNumber(3)),
+                ifmr.equal((IntegerFormula) commonVars.get("z"), ifmr.makeNumber(-2)));
+        DataGenerator.PointSink sink = new DataGenerator.PointSink(commonVars, true);
+        assertTrue(ModelValidator.generateAssignments(context, formula, 1, sink));
+        assertPoint(sink, Map.of("b", 1L, "x", 3L, "y", 0L, "z", -2L), 1);
+    }
+
+    @Test
+    public void falseBooleanIsZero() {
+        BooleanFormula formula = bfmr.and(
+                bfmr.not((BooleanFormula) commonVars.get("b")),
+                ifmr.equal((IntegerFormula) commonVars.get("x"), ifmr.makeNumber(1)),
+                ifmr.equal((IntegerFormula) commonVars.get("y"), ifmr.makeNumber(5)),
+                ifmr.equal((IntegerFormula) commonVars.get("z"), ifmr.makeNumber(7)));
+        DataGenerator.PointSink sink = new DataGenerator.PointSink(commonVars, false);
+        assertTrue(ModelValidator.generateAssignments(context, formula, 1, sink));
+        assertPoint(sink, Map.of("b", 0L, "x", 1L, "y", 5L, "z", 7L), 0);
+    }
+
+    /**
+     * Checks the only point of the sink, ID first, then the values in the order of the common variables, label last
+     */
+    private void assertPoint(DataGenerator.PointSink sink, Map<String, Long> expected, int label) {
+        assertEquals(1, sink.getPoints().size());
+        List<Number> point = sink.getPoints().iterator().next();
+        assertEquals(commonVars.size() + 2, point.size());
+        int column = 1;
+        for (String var : commonVars.keySet()) {
+            assertEquals("column of " + var, (long) expected.get(var), point.get(column++).longValue());
+        }
+        assertEquals(label, point.get(column).intValue());
+    }
+}
@@ -0,0 +1,62 @@
+package Teacher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.api.*;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FormulaHandlerTest {
+    private SolverContext context;
+    private BooleanFormulaManager bfmr;
+    private List<BooleanFormula> conjuncts;
+
+    @Before
+    public void setUp() throws InvalidConfigurationException {
+        context = SolverContextFactory.createSolverContext(SolverContextFactory.Solvers.SMTINTERPOL);
+        bfmr = context.getFormulaManager().getBooleanFormulaManager();
+        IntegerFormulaManager ifmr = context.getFormulaManager().getIntegerFormulaManager();
+        IntegerFormula x = ifmr.makeVariable("x");
+        conjuncts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            conjuncts.add(ifmr.lessOrEquals(x, ifmr.makeNumber(i)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void keepsOrderOfNestedConjuncts() throws Exception {
+        //((c0 & c1) & (c2 & (c3 & c4)))
+        BooleanFormula formula = bfmr.and(
+                bfmr.and(conjuncts.get(0), conjuncts.get(1)),
+                bfmr.and(conjuncts.get(2), bfmr.and(conjuncts.get(3), conjuncts.get(4))));
+        List<BooleanFormula> sequence = FormulaHandler.splitFormulaSequence(context, bfmr, formula, 3);
+        //5 conjuncts in 3 partitions, the first partitions get the remainder
+        assertEquals(3, sequence.size());
+        assertEquals(bfmr.and(conjuncts.subList(0, 2)), sequence.get(0));
+        assertEquals(bfmr.and(conjuncts.subList(2, 4)), sequence.get(1));
+        assertEquals(conjuncts.get(4), sequence.get(2));
+    }
+
+    @Test
+    public void atMostOnePartitionPerConjunct() throws Exception {
+        List<BooleanFormula> sequence = FormulaHandler.splitFormulaSequence(context, bfmr, bfmr.and(conjuncts), 8);
+        assertEquals(conjuncts, sequence);
+    }
+
+    @Test(expected = FormulaHandler.NoSplitException.class)
+    public void rejectsSinglePartition() throws Exception {
+        FormulaHandler.splitFormulaSequence(context, bfmr, bfmr.and(conjuncts), 1);
+    }
+}
@@ -0,0 +1,133 @@
+package Teacher;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.api.*;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HypothesisBuilderTest {
+    private static final String DECLARATIONS = "(declare-fun x () Int)\n(declare-fun y () Int)\n";
+    private SolverContext context;
+    private FormulaManager fmgr;
+    private BooleanFormulaManager bfmr;
+
+    @Before
+    public void setUp() throws InvalidConfigurationException {
+        context = SolverContextFactory.createSolverContext(SolverContextFactory.Solvers.SMTINTERPOL);
+        fmgr = context.getFormulaManager();
+        bfmr = fmgr.getBooleanFormulaManager();
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void letBindings() throws Exception {
+        assertSameAsParser(DECLARATIONS
+                + "(assert (let ((s (+ x y))) (let ((t (* 2 s))) (and (<= s 3) (>= t (- 2))))))");
+    }
+
+    @Test
+    public void chainedComparisons() throws Exception {
+        assertSameAsParser(DECLARATIONS + "(assert (<= x y 5))");
+        assertSameAsParser(DECLARATIONS + "(assert (< 0 x y))");
+        assertSameAsParser(DECLARATIONS + "(assert (= x y 3))");
+    }
+
+    @Test
+    public void unaryMinus() throws Exception {
+        assertSameAsParser(DECLARATIONS + "(assert (> (- x) (- 3)))");
+        assertSameAsParser(DECLARATIONS + "(assert (= (- x y 1) 0))");
+    }
+
+    @Test
+    public void quotedSymbols() throws Exception {
+        assertSameAsParser("(declare-fun |a b| () Int)\n(assert (<= |a b| 1))");
+    }
+
+    @Test
+    public void booleanConnectives() throws Exception {
+        assertSameAsParser(DECLARATIONS + "(declare-fun b () Bool)\n"
+                + "(assert (ite b (=> (<= x 0) (> y 2)) (xor (< x y) (not b))))");
+    }
+
+    @Test
+    public void multipleAssertions() throws Exception {
+        assertSameAsParser(DECLARATIONS + "(assert (<= x 1))\n(assert (>= y 2))");
+    }
+
+    @Test
+    public void fallbackToParser() throws Exception {
+        //distinct is not supported by the builder
+        assertSameAsParser(DECLARATIONS + "(assert (distinct x y))");
+    }
+
+    @Test
+    public void undeclaredCommonVariables() throws Exception {
+        BooleanFormula expected = fmgr.parse(DECLARATIONS + "(declare-fun b () Bool)\n(assert (and b (<= x y)))");
+        Map<String, Formula> commonVars = Map.of(
+                "b", bfmr.makeVariable("b"),
+                "x", fmgr.getIntegerFormulaManager().makeVariable("x"),
+                "y", fmgr.getIntegerFormulaManager().makeVariable("y"));
+        HypothesisBuilder builder = new HypothesisBuilder(context, commonVars);
+        assertEquivalent(expected, builder.build("(assert (and b (<= x y)))"));
+    }
+
+    @Test
+    public void cachedAcrossHypotheses() throws Exception {
+        HypothesisBuilder builder = new HypothesisBuilder(context, Map.of());
+        BooleanFormula first = builder.build(DECLARATIONS + "(assert (and (<= x 1) (<= y 2)))");
+        BooleanFormula second = builder.build(DECLARATIONS + "(assert (and (<= x 1) (<= y 2)))");
+        assertEquals(first, second);
+        assertEquivalent(fmgr.parse(DECLARATIONS + "(assert (or (<= x 1) (> y 3)))"),
+                builder.build(DECLARATIONS + "(assert (or (<= x 1) (> y 3)))"));
+    }
+
+    @Test
+    public void changedSortIsNotTakenFromCache() throws Exception {
+        //SMTInterpol does not allow the same name with different sorts, Z3 does
+        SolverContext z3Context;
+        try {
+            z3Context = SolverContextFactory.createSolverContext(SolverContextFactory.Solvers.Z3);
+        } catch (InvalidConfigurationException | UnsatisfiedLinkError e) {
+            Assume.assumeNoException("Z3 not available", e);
+            return;
+        }
+        try (z3Context) {
+            HypothesisBuilder builder = new HypothesisBuilder(z3Context, Map.of());
+            builder.build("(declare-fun v () Int)\n(declare-fun w () Int)\n(assert (= v w))");
+            BooleanFormula hypothesis = builder.build("(declare-fun v () Bool)\n(declare-fun w () Bool)\n(assert (= v w))");
+            BooleanFormulaManager z3Bfmr = z3Context.getFormulaManager().getBooleanFormulaManager();
+            BooleanFormula expected = z3Bfmr.equivalence(z3Bfmr.makeVariable("v"), z3Bfmr.makeVariable("w"));
+            try (ProverEnvironment prover = z3Context.newProverEnvironment()) {
+                prover.addConstraint(z3Bfmr.not(z3Bfmr.equivalence(expected, hypothesis)));
+                assertTrue("stale integer equality reused: " + hypothesis, prover.isUnsat());
+            }
+        }
+    }
+
+    /**
+     * Builds the script with the builder and the parser of the solver and checks the results for equivalence
+     */
+    private void assertSameAsParser(String script) throws Exception {
+        BooleanFormula expected = fmgr.parse(script);
+        HypothesisBuilder builder = new HypothesisBuilder(context, Map.of());
+        assertEquivalent(expected, builder.build(script));
+    }
+
+    private void assertEquivalent(BooleanFormula expected, BooleanFormula actual) throws Exception {
+        try (ProverEnvironment prover = context.newProverEnvironment()) {
+            prover.addConstraint(bfmr.not(bfmr.equivalence(expected, actual)));
+            assertTrue("not equivalent: " + expected + " and " + actual, prover.isUnsat());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package Teacher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.java_smt.SolverContextFactory;
+import org.sosy_lab.java_smt.api.*;
+import org.sosy_lab.java_smt.api.NumeralFormula.IntegerFormula;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ShardedEnumeratorTest {
+    private SolverContext context;
+    private BooleanFormulaManager bfmr;
+    private IntegerFormulaManager ifmr;
+    private IntegerFormula x;
+    private IntegerFormula y;
+    private Map<String, Formula> commonVars;
+
+    @Before
+    public void setUp() throws InvalidConfigurationException {
+        context = SolverContextFactory.createSolverContext(SolverContextFactory.Solvers.SMTINTERPOL);
+        bfmr = context.getFormulaManager().getBooleanFormulaManager();
+        ifmr = context.getFormulaManager().getIntegerFormulaManager();
+        x = ifmr.makeVariable("x");
+        y = ifmr.makeVariable("y");
+        commonVars = Map.of("x", x, "y", y, "b", bfmr.makeVariable("b"));
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void budgetIsRespectedAcrossCubes() {
+        //200 assignments, more than requested
+        BooleanFormula base = box(9, 9);
+        try (ShardedEnumerator enumerator = new ShardedEnumerator(context, commonVars, 4)) {
+            List<Map<String, Object>> assignments = collect(enumerator, base, bfmr.makeTrue(), 30);
+            assertEquals(30, assignments.size());
+            assertEquals("repeated assignment", 30, new HashSet<>(assignments).size());
+        }
+    }
+
+    @Test
+    public void cubesCoverAllAssignmentsOnce() {
+        //12 assignments, fewer than requested
+        BooleanFormula base = box(2, 1);
+        try (ShardedEnumerator enumerator = new ShardedEnumerator(context, commonVars, 4)) {
+            List<Map<String, Object>> assignments = collect(enumerator, base, bfmr.makeTrue(), 50);
+            assertEquals(12, assignments.size());
+            assertEquals("repeated assignment", 12, new HashSet<>(assignments).size());
+        }
+    }
+
+    @Test
+    public void constraintChangesWithSameBase() {
+        BooleanFormula base = box(9, 9);
+        try (ShardedEnumerator enumerator = new ShardedEnumerator(context, commonVars, 4)) {
+            BooleanFormula lower = ifmr.lessThan(x, ifmr.makeNumber(5));
+            BooleanFormula upper = ifmr.greaterOrEquals(x, ifmr.makeNumber(5));
+            for (Map<String, Object> assignment : collect(enumerator, base, lower, 20)) {
+                assertTrue(((BigInteger) assignment.get("x")).intValue() < 5);
+            }
+            for (Map<String, Object> assignment : collect(enumerator, base, upper, 20)) {
+                assertTrue(((BigInteger) assignment.get("x")).intValue() >= 5);
+            }
+            assertFalse(enumerator.generateAssignments(base, bfmr.and(lower, upper), 20, assignments -> fail()));
+        }
+    }
+
+    /**
+     * @return the formula 0 <= x <= maxX and 0 <= y <= maxY, b occurs in the formula but is unconstrained
+     */
+    private BooleanFormula box(int maxX, int maxY) {
+        return bfmr.and(
+                ifmr.greaterOrEquals(x, ifmr.makeNumber(0)),
+                ifmr.lessOrEquals(x, ifmr.makeNumber(maxX)),
+                ifmr.greaterOrEquals(y, ifmr.makeNumber(0)),
+                ifmr.lessOrEquals(y, ifmr.makeNumber(maxY)),
+                bfmr.or((BooleanFormula) commonVars.get("b"), ifmr.greaterOrEquals(x, ifmr.makeNumber(0))));
+    }
+
+    private List<Map<String, Object>> collect(ShardedEnumerator enumerator,
+                                              BooleanFormula base,
+                                              BooleanFormula constraint,
+                                              int count) {
+        List<Map<String, Object>> collected = new ArrayList<>();
+        assertTrue(enumerator.generateAssignments(base, constraint, count, assignments -> {
+            Map<String, Object> values = new HashMap<>();
+            for (Model.ValueAssignment assignment : assignments) {
+                values.put(assignment.getName(), assignment.getValue());
+            }
+            collected.add(values);
+        }));
+        return collected;
+    }
+}